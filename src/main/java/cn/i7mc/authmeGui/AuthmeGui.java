@@ -7,7 +7,11 @@ import cn.i7mc.authmeGui.listener.AnvilInputListener;
 import cn.i7mc.authmeGui.listener.AuthMeEventListener;
 import cn.i7mc.authmeGui.listener.InventoryEventListener;
 import cn.i7mc.authmeGui.listener.PlayerEventListener;
-import cn.i7mc.authmeGui.util.AnvilInputUtil;
+import cn.i7mc.authmeGui.listener.PreLoginListener;
+import cn.i7mc.authmeGui.session.AuthSessionRegistry;
+import cn.i7mc.authmeGui.session.AuthStateMachine;
+import cn.i7mc.authmeGui.util.HashingExecutor;
+import cn.i7mc.authmeGui.util.TimingWheel;
 import cn.i7mc.authmeGui.manager.AuthMeManager;
 import cn.i7mc.authmeGui.manager.ConfigManager;
 import cn.i7mc.authmeGui.manager.GUIManager;
@@ -37,10 +41,15 @@ public final class AuthmeGui extends JavaPlugin {
     private LoginPluginManager loginPluginManager;
     private MenuConfigParser menuConfigParser;
     private GUIManager guiManager;
+    private HashingExecutor hashingExecutor;
+    private AuthStateMachine authStateMachine;
+    private TimingWheel timingWheel;
+    private AuthSessionRegistry sessionRegistry;
 
     // 监听器实例
     private PlayerEventListener playerEventListener;
     private InventoryEventListener inventoryEventListener;
+    private PreLoginListener preLoginListener;
     private AuthMeEventListener authMeEventListener;
     private AnvilInputListener anvilInputListener;
 
@@ -177,17 +186,49 @@ public final class AuthmeGui extends JavaPlugin {
         messageManager = new MessageManagerImpl(this, configManager);
         messageManager.initialize();
 
+        // 初始化密码哈希线程池
+        hashingExecutor = new HashingExecutor(this,
+            configManager.getMainConfig().getInt("performance.hashing.threads", 0),
+            configManager.getMainConfig().getInt("performance.hashing.queue-capacity", 256),
+            configManager.getMainConfig().getInt("performance.hashing.per-player-limit", 1),
+            configManager.getMainConfig().getInt("performance.hashing.per-ip-limit", 3),
+            configManager.getMainConfig().getInt("performance.hashing.per-ip-queue-limit", 16),
+            configManager.getMainConfig().getInt("performance.hashing.lookup-threads", 2),
+            configManager.getMainConfig().getInt("performance.hashing.lookup-queue-capacity", 1024));
+
         // 初始化登录插件管理器（优先使用新的统一接口）
         loginPluginManager = initializeLoginPlugin();
+
+        // 可选：异步加载已注册名称索引
+        if (loginPluginManager != null
+                && configManager.getMainConfig().getBoolean("performance.name-index.enabled", false)) {
+            loginPluginManager.loadNameIndex();
+        }
         
         // 为了向后兼容，保留原有的authMeManager
         authMeManager = new AuthMeManagerImpl(this, messageManager, configManager);
         authMeManager.initialize();
 
+        authStateMachine = new AuthStateMachine();
+
+        // 初始化时间轮（所有按玩家的延迟任务共用一个调度任务）
+        timingWheel = new TimingWheel(this, configManager.getMainConfig().getInt("performance.timing-wheel.size", 512));
+        timingWheel.start();
+
+        // 预登录缓存的过期条目随时间轮定期清理
+        if (loginPluginManager != null) {
+            timingWheel.addTickHook(loginPluginManager.getRegistrationCache()::sweepExpired);
+        }
+
+        // 初始化认证会话注册表，定期检查会话泄漏
+        sessionRegistry = new AuthSessionRegistry(this, timingWheel);
+        sessionRegistry.startLeakCheck(
+            configManager.getMainConfig().getLong("performance.session.leak-check-interval", 300L) * 20L);
+
         menuConfigParser = new MenuConfigParserImpl(this);
         menuConfigParser.initialize();
 
-        guiManager = new GUIManagerImpl(this, messageManager, authMeManager, menuConfigParser);
+        guiManager = new GUIManagerImpl(this, messageManager, loginPluginManager, menuConfigParser);
         guiManager.initialize();
     }
 
@@ -196,18 +237,23 @@ public final class AuthmeGui extends JavaPlugin {
      */
     private void registerListeners() {
 
-        playerEventListener = new PlayerEventListener(this, messageManager, authMeManager, guiManager);
+        playerEventListener = new PlayerEventListener(this, messageManager, guiManager);
         getServer().getPluginManager().registerEvents(playerEventListener, this);
 
+        preLoginListener = new PreLoginListener(this, guiManager, loginPluginManager);
+        getServer().getPluginManager().registerEvents(preLoginListener, this);
+
         inventoryEventListener = new InventoryEventListener(this, messageManager, guiManager);
         getServer().getPluginManager().registerEvents(inventoryEventListener, this);
 
-        // 注册AuthMe事件监听器（核心功能）
-        authMeEventListener = new AuthMeEventListener(this, messageManager, guiManager, authMeManager);
-        getServer().getPluginManager().registerEvents(authMeEventListener, this);
+        // 注册AuthMe事件监听器（只在登录插件提供登录/注册事件时注册，避免缺少AuthMe类）
+        if (loginPluginManager != null && loginPluginManager.hasCapability(LoginPluginManager.Capability.AUTH_EVENTS)) {
+            authMeEventListener = new AuthMeEventListener(this, messageManager, guiManager, loginPluginManager);
+            getServer().getPluginManager().registerEvents(authMeEventListener, this);
+        }
 
         // 注册PacketEvents监听器（铁砧输入监听）
-        anvilInputListener = new AnvilInputListener(messageManager);
+        anvilInputListener = new AnvilInputListener(this, messageManager);
         PacketEvents.getAPI().getEventManager().registerListener(anvilInputListener, PacketListenerPriority.NORMAL);
     }
 
@@ -231,8 +277,25 @@ public final class AuthmeGui extends JavaPlugin {
             guiManager.clearAllGUIs();
         }
 
-        // 清空所有铁砧输入记录
-        AnvilInputUtil.clearAll();
+        // 释放所有认证会话
+        if (sessionRegistry != null) {
+            sessionRegistry.clear();
+        }
+
+        // 停止时间轮
+        if (timingWheel != null) {
+            timingWheel.stop();
+        }
+
+        // 清空认证状态
+        if (authStateMachine != null) {
+            authStateMachine.clear();
+        }
+
+        // 关闭密码哈希线程池
+        if (hashingExecutor != null) {
+            hashingExecutor.shutdown();
+        }
     }
 
     /**
@@ -279,4 +342,24 @@ public final class AuthmeGui extends JavaPlugin {
     public LoginPluginManager getLoginPluginManager() {
         return loginPluginManager;
     }
+
+    public HashingExecutor getHashingExecutor() {
+        return hashingExecutor;
+    }
+
+    public AuthStateMachine getAuthStateMachine() {
+        return authStateMachine;
+    }
+
+    public TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
+    public AuthSessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    public AnvilInputListener getAnvilInputListener() {
+        return anvilInputListener;
+    }
 }
@@ -1,24 +1,53 @@
 package cn.i7mc.authmeGui.command;
 
 import cn.i7mc.authmeGui.AuthmeGui;
+import cn.i7mc.authmeGui.config.MenuConfig;
+import cn.i7mc.authmeGui.config.MenuTemplate;
+import cn.i7mc.authmeGui.config.SlotLayout;
+import cn.i7mc.authmeGui.gui.AnvilGUI;
+import cn.i7mc.authmeGui.gui.GuiOpener;
+import cn.i7mc.authmeGui.gui.LoginGUI;
+import cn.i7mc.authmeGui.listener.AnvilInputListener;
 import cn.i7mc.authmeGui.manager.ConfigManager;
 import cn.i7mc.authmeGui.manager.GUIManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
+import cn.i7mc.authmeGui.session.AuthSession;
+import cn.i7mc.authmeGui.session.AuthSessionRegistry;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.session.AuthStateMachine;
+import cn.i7mc.authmeGui.session.InputRateLimiter;
+import cn.i7mc.authmeGui.session.RenderCoalescer;
+import cn.i7mc.authmeGui.util.AdmissionQueue;
+import cn.i7mc.authmeGui.util.HashingExecutor;
+import cn.i7mc.authmeGui.util.RegisteredNameIndex;
+import cn.i7mc.authmeGui.util.TimingWheel;
+import cn.i7mc.authmeGui.util.TrafficMeter;
+import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AuthGui主命令处理器
  * 处理插件的所有命令
  */
 public class AuthGuiCommand implements CommandExecutor, TabCompleter {
+
+    // 性能测试在主线程执行，限制次数并按时间片分到多个tick
+    private static final int DEFAULT_BENCH_ITERATIONS = 200;
+    private static final int MAX_BENCH_ITERATIONS = 1000;
+    private static final long BENCH_SLICE_NANOS = 2_000_000L;
     
     private final AuthmeGui plugin;
     private final MessageManager messageManager;
@@ -65,6 +94,10 @@ public class AuthGuiCommand implements CommandExecutor, TabCompleter {
             case "info":
                 handleInfo(sender);
                 break;
+
+            case "bench":
+                handleBench(sender, args);
+                break;
                 
             default:
                 sendHelp(sender);
@@ -84,7 +117,7 @@ public class AuthGuiCommand implements CommandExecutor, TabCompleter {
         
         if (args.length == 1) {
             // 第一个参数的补全
-            List<String> subCommands = Arrays.asList("reload", "open", "close", "info");
+            List<String> subCommands = Arrays.asList("reload", "open", "close", "info", "bench");
             String input = args[0].toLowerCase();
             
             for (String subCommand : subCommands) {
@@ -161,6 +194,13 @@ public class AuthGuiCommand implements CommandExecutor, TabCompleter {
             return;
         }
         
+        // 校验进行中不重新打开GUI，由校验结果决定
+        if (plugin.getAuthStateMachine().isInState(target, AuthState.VERIFYING)) {
+            messageManager.sendMessage(sender, "command.player-verifying",
+                messageManager.createPlaceholders("player", target.getName()));
+            return;
+        }
+
         String guiType = args.length > 2 ? args[2].toLowerCase() : "auto";
         
         switch (guiType) {
@@ -213,9 +253,344 @@ public class AuthGuiCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§e状态: §a运行中");
         sender.sendMessage("§eGUI系统: §f" + (guiManager.isGUIEnabled() ? "§a启用" : "§c禁用"));
         sender.sendMessage("§e自动打开: §f" + (guiManager.isAutoOpenEnabled() ? "§a启用" : "§c禁用"));
-        sender.sendMessage("§e活跃GUI数量: §f" + guiManager.getActiveGUICount());
+        sender.sendMessage("§e活跃GUI数量: §f" + guiManager.getActiveGUICount()
+            + " §7(累计新建 " + guiManager.getCreatedGUICount() + ", 重开复用 " + guiManager.getReusedGUICount() + ")");
+
+        AuthSessionRegistry sessionRegistry = plugin.getSessionRegistry();
+        if (sessionRegistry != null) {
+            sender.sendMessage("§e认证会话: §f" + sessionRegistry.size() + " 个 §7(查看GUI: " + sessionRegistry.getViewingCount() + ", 当前泄漏: "
+                + sessionRegistry.findLeakedSessions().size() + ", 累计释放泄漏: " + sessionRegistry.getLeakedCount() + ")");
+        }
+
+        AuthStateMachine stateMachine = plugin.getAuthStateMachine();
+        if (stateMachine != null) {
+            sender.sendMessage("§e认证状态: §f" + stateMachine.size() + " 名玩家 §7" + stateMachine.countByState());
+        }
+
+        AnvilInputListener anvilInputListener = plugin.getAnvilInputListener();
+        if (anvilInputListener != null) {
+            RenderCoalescer renderCoalescer = anvilInputListener.getRenderCoalescer();
+            sender.sendMessage("§e输入刷新: §f" + renderCoalescer.getRenderCount() + " 次刷新 §7/ §f"
+                + renderCoalescer.getRequestCount() + " 次输入 §7(待刷新: " + renderCoalescer.getPendingCount()
+                + ", 单tick最多: " + renderCoalescer.getMaxBatchSize() + ")");
+
+            sender.sendMessage("§e槽位同步: §f" + (guiManager.isSlotPacketsEnabled() ? "定向槽位数据包" : "完整背包同步"));
+            sendTrafficLine(sender, "定向槽位", anvilInputListener.getSlotPacketMeter());
+            sendTrafficLine(sender, "完整同步", anvilInputListener.getFullResyncMeter());
+
+            // 正在查看GUI的玩家的平均出站速率
+            int viewers = 0;
+            double packetsPerSecond = 0.0;
+            for (AuthSession session : plugin.getSessionRegistry().getSessions()) {
+                TrafficMeter viewMeter = session.getViewMeter();
+                if (session.getViewingGui() != null && viewMeter != null) {
+                    viewers++;
+                    packetsPerSecond += viewMeter.getPacketsPerSecond();
+                }
+            }
+            if (viewers > 0) {
+                sender.sendMessage(String.format("§e查看中玩家: §f%d 人 §7/ §f平均 %.1f 包/秒", viewers, packetsPerSecond / viewers));
+            }
+        }
+
+        InputRateLimiter inputRateLimiter = guiManager.getInputRateLimiter();
+        sender.sendMessage("§e输入限流: §f丢弃 " + inputRateLimiter.getRateLimitedCount() + " 个超速 §7/ §f"
+            + inputRateLimiter.getOversizedCount() + " 个超长 §7(踢出: " + inputRateLimiter.getKickCount() + ")");
+
+        GuiOpener guiOpener = guiManager.getGuiOpener();
+        sender.sendMessage("§eGUI打开方式: §f" + (guiManager.isVirtualAnvilEnabled()
+            ? GuiOpener.Strategy.PACKET : guiOpener.getStrategy()).getDisplayName());
+        for (GuiOpener.Strategy strategy : GuiOpener.Strategy.values()) {
+            if (guiOpener.getAttempts(strategy) == 0) {
+                continue;
+            }
+            sender.sendMessage(String.format("§7  %s: §f%d 次 §7/ §a成功 %d §7/ §c失败 %d §7/ §f平均 %.1fμs",
+                strategy.getDisplayName(), guiOpener.getAttempts(strategy), guiOpener.getSuccesses(strategy),
+                guiOpener.getFailures(strategy), guiOpener.getAverageLatencyMicros(strategy)));
+        }
+
+        AdmissionQueue admissionQueue = guiManager.getAdmissionQueue();
+        sender.sendMessage("§eGUI准入队列: §f" + admissionQueue.getDepth() + " 人排队 §7(每tick " 
+            + (admissionQueue.getOpensPerTick() > 0 ? admissionQueue.getOpensPerTick() : "不限")
+            + ", 峰值: " + admissionQueue.getMaxDepth() + ", 已打开: " + admissionQueue.getAdmittedCount() + ")");
+        sender.sendMessage(String.format("§e准入等待: §f平均 %.1fms §7/ §f最长 %.1fms §7/ §f当前最久 %.1fms",
+            admissionQueue.getAverageWaitMillis(), admissionQueue.getMaxWaitMillis(),
+            admissionQueue.getOldestWaitMillis()));
+
+        TimingWheel timingWheel = plugin.getTimingWheel();
+        if (timingWheel != null) {
+            sender.sendMessage("§e时间轮: §f" + timingWheel.getScheduledCount() + " 个待执行任务 §7(玩家: "
+                + timingWheel.getOwnerCount() + ", 槽位: " + timingWheel.getWheelSize()
+                + ", 已执行: " + timingWheel.getExecutedCount() + ")");
+        }
+
+        LoginPluginManager loginPluginManager = plugin.getLoginPluginManager();
+        if (loginPluginManager != null) {
+            sender.sendMessage("§e登录插件: §f" + loginPluginManager.getPluginType()
+                + (loginPluginManager.isPluginEnabled() ? " §a可用" : " §c不可用")
+                + " §7" + loginPluginManager.getCapabilities());
+            sender.sendMessage("§e预登录缓存: §f" + loginPluginManager.getRegistrationCache().size() + " 条");
+
+            RegisteredNameIndex nameIndex = loginPluginManager.getRegisteredNameIndex();
+            if (nameIndex == null) {
+                sender.sendMessage("§e名称索引: §7未启用");
+            } else if (!nameIndex.isReady()) {
+                sender.sendMessage("§e名称索引: §e加载中 §7(" + nameIndex.size() + " 个账号)");
+            } else {
+                sender.sendMessage(String.format("§e名称索引: §f%d 个账号 §7/ §f%.1fMB §7(加载耗时 %dms)",
+                    nameIndex.size(), nameIndex.getMemoryBytes() / 1024.0 / 1024.0, nameIndex.getLoadTimeMillis()));
+            }
+        }
+
+        HashingExecutor hashingExecutor = plugin.getHashingExecutor();
+        if (hashingExecutor != null) {
+            sender.sendMessage("§e哈希线程: §f" + hashingExecutor.getThreadCount()
+                + " §7(执行中: " + hashingExecutor.getActiveCount() + ")");
+            sender.sendMessage("§e哈希队列: §f" + hashingExecutor.getQueueDepth()
+                + "/" + hashingExecutor.getQueueCapacity()
+                + " §7(已完成: " + hashingExecutor.getCompletedCount()
+                + ", 已拒绝: " + hashingExecutor.getRejectedCount()
+                + ", 查询排队: " + hashingExecutor.getLookupQueueDepth() + ")");
+            sender.sendMessage(String.format("§e排队等待: §f平均 %.1fms §7/ §f最长 %.1fms",
+                hashingExecutor.getAverageQueueWaitMillis(), hashingExecutor.getMaxQueueWaitMillis()));
+            sender.sendMessage(String.format("§e哈希耗时: §f平均 %.1fms §7/ §f最长 %.1fms",
+                hashingExecutor.getAverageHashMillis(), hashingExecutor.getMaxHashMillis()));
+        }
     }
     
+    /**
+     * 处理性能测试命令
+     * 在一个不显示给任何玩家的铁砧背包中反复构建每个菜单，比较逐项构建物品和使用编译后模板的耗时；
+     * 再比较每次重开都新建GUI（new LoginGUI）和回收复用同一个GUI（recycle）的耗时与内存分配，
+     * GUI绑定执行命令的玩家但不会打开给他
+     *
+     * 测试在主线程执行（Bukkit的背包和物品不是线程安全的），所以次数有上限，
+     * 并按时间片分到多个tick中执行，每tick最多占用 BENCH_SLICE_NANOS，不会卡住服务器
+     */
+    private void handleBench(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            messageManager.sendMessage(sender, "command.only-player", null);
+            return;
+        }
+        Player player = (Player) sender;
+
+        // 回收GUI会清空玩家会话中的输入，正在认证的玩家不能执行
+        if (guiManager.hasActiveGUI(player) || plugin.getAuthStateMachine().needsAuthentication(player)) {
+            sender.sendMessage("§c正在登录或注册的玩家不能执行性能测试！");
+            return;
+        }
+
+        int iterations = DEFAULT_BENCH_ITERATIONS;
+        if (args.length >= 2) {
+            try {
+                iterations = Math.max(1, Math.min(MAX_BENCH_ITERATIONS, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sendHelp(sender);
+                return;
+            }
+        }
+
+        Inventory inventory = Bukkit.createInventory(null, InventoryType.ANVIL);
+        List<BenchPhase> phases = new ArrayList<>();
+        List<BenchPhase[]> results = new ArrayList<>();
+        for (Map.Entry<String, MenuConfig> entry : plugin.getMenuConfigParser().getAllMenuConfigs().entrySet()) {
+            MenuConfig menuConfig = entry.getValue();
+            SlotLayout layout = menuConfig.getTemplate().getLayout();
+            AnvilGUI recycledGui = new LoginGUI(plugin, messageManager, guiManager.getLoginPluginManager(), player, menuConfig);
+
+            Runnable fromConfig = () -> buildFromConfig(inventory, menuConfig);
+            Runnable fromTemplate = () -> fillFromTemplate(inventory, layout);
+            Runnable fresh = () -> new LoginGUI(plugin, messageManager, guiManager.getLoginPluginManager(), player, menuConfig);
+            Runnable reused = recycledGui::recycle;
+
+            // 预热，避免首次执行的类加载和JIT影响结果
+            int warmup = iterations / 10 + 1;
+            phases.add(new BenchPhase(warmup, fromConfig));
+            phases.add(new BenchPhase(warmup, fromTemplate));
+            phases.add(new BenchPhase(warmup, fresh));
+            phases.add(new BenchPhase(warmup, reused));
+
+            BenchPhase[] measured = {
+                new BenchPhase(iterations, fromConfig),
+                new BenchPhase(iterations, fromTemplate),
+                new BenchPhase(iterations, fresh),
+                new BenchPhase(iterations, reused)
+            };
+            phases.addAll(Arrays.asList(measured));
+            results.add(measured);
+        }
+
+        List<String> menuNames = new ArrayList<>(plugin.getMenuConfigParser().getAllMenuConfigs().keySet());
+        sender.sendMessage("§6=== 菜单构建测试 (" + iterations + " 次) ===");
+        sender.sendMessage("§c测试在主线程分批执行（每tick最多 " + BENCH_SLICE_NANOS / 1_000_000 + "ms），请勿在玩家较多时使用");
+        runBenchSlice(player, phases, 0, () -> {
+            for (int i = 0; i < results.size(); i++) {
+                sendBenchResult(player, menuNames.get(i), results.get(i));
+            }
+        });
+    }
+
+    /**
+     * 执行一个时间片的测试，没有完成时在下一tick继续（玩家退出时随会话一起取消）
+     */
+    private void runBenchSlice(Player player, List<BenchPhase> phases, int index, Runnable onComplete) {
+        plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, () -> {
+            long sliceEnd = System.nanoTime() + BENCH_SLICE_NANOS;
+            int current = index;
+            while (current < phases.size() && System.nanoTime() < sliceEnd) {
+                BenchPhase phase = phases.get(current);
+                phase.runBatch();
+                if (phase.isDone()) {
+                    current++;
+                }
+            }
+
+            if (current < phases.size()) {
+                runBenchSlice(player, phases, current, onComplete);
+            } else {
+                onComplete.run();
+            }
+        });
+    }
+
+    /**
+     * 显示一个菜单的测试结果
+     * @param measured 逐项构建、编译模板、新建GUI、回收GUI四个阶段
+     */
+    private void sendBenchResult(Player player, String menuName, BenchPhase[] measured) {
+        BenchPhase fromConfig = measured[0];
+        BenchPhase fromTemplate = measured[1];
+        BenchPhase fresh = measured[2];
+        BenchPhase reused = measured[3];
+
+        player.sendMessage(String.format("§e%s: §f逐项构建 %.2fμs §7/ §f编译模板 %.2fμs §7(快 %.1f 倍)",
+            menuName, fromConfig.getAverageMicros(), fromTemplate.getAverageMicros(),
+            fromTemplate.getAverageMicros() > 0 ? fromConfig.getAverageMicros() / fromTemplate.getAverageMicros() : 0.0));
+
+        if (fresh.getAverageAllocatedBytes() < 0) {
+            player.sendMessage(String.format("§7  重开: §f新建GUI %.2fμs §7/ §f回收GUI %.2fμs §7(当前JVM不支持统计内存分配)",
+                fresh.getAverageMicros(), reused.getAverageMicros()));
+        } else {
+            player.sendMessage(String.format("§7  重开: §f新建GUI %.2fμs, %d 字节/次 §7/ §f回收GUI %.2fμs, %d 字节/次",
+                fresh.getAverageMicros(), fresh.getAverageAllocatedBytes(),
+                reused.getAverageMicros(), reused.getAverageAllocatedBytes()));
+        }
+    }
+
+    /**
+     * 性能测试的一个阶段：重复执行同一个操作，累计耗时和内存分配
+     */
+    private static final class BenchPhase {
+        private static final int BATCH_SIZE = 10;
+
+        private final int iterations;
+        private final Runnable action;
+        private int completed;
+        private long totalNanos;
+        private long allocatedBytes;
+
+        private BenchPhase(int iterations, Runnable action) {
+            this.iterations = iterations;
+            this.action = action;
+        }
+
+        /**
+         * 执行一小批，时间片只在批次之间检查
+         */
+        private void runBatch() {
+            int count = Math.min(BATCH_SIZE, iterations - completed);
+            long allocatedBefore = getThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                action.run();
+            }
+            totalNanos += System.nanoTime() - start;
+            long allocatedAfter = getThreadAllocatedBytes();
+            if (allocatedBefore < 0 || allocatedAfter < 0) {
+                allocatedBytes = -1L;
+            } else if (allocatedBytes >= 0) {
+                allocatedBytes += allocatedAfter - allocatedBefore;
+            }
+            completed += count;
+        }
+
+        private boolean isDone() {
+            return completed >= iterations;
+        }
+
+        private double getAverageMicros() {
+            return completed == 0 ? 0.0 : totalNanos / 1000.0 / completed;
+        }
+
+        /**
+         * @return 平均每次分配的字节数，JVM不支持时返回-1
+         */
+        private long getAverageAllocatedBytes() {
+            return allocatedBytes < 0 || completed == 0 ? -1L : allocatedBytes / completed;
+        }
+    }
+
+    /**
+     * 获取当前线程累计分配的内存
+     * @return 字节数，JVM不支持时返回-1
+     */
+    private static long getThreadAllocatedBytes() {
+        try {
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+        } catch (Throwable e) {
+            // 非HotSpot的JVM可能没有com.sun.management
+        }
+        return -1L;
+    }
+
+    /**
+     * 逐项构建菜单作为对照：按编译模板之前setupItems的流程，每次都通过MenuTemplate.createItem
+     * 解析材质、构建ItemMeta并转换颜色代码。这是旧流程的重现，不是旧版本代码本身，
+     * 结果只用于估算两种方式的差距
+     */
+    private void buildFromConfig(Inventory inventory, MenuConfig menuConfig) {
+        inventory.clear();
+        for (MenuConfig.ItemConfig itemConfig : menuConfig.getItems().values()) {
+            Object slot = itemConfig.getSlot();
+            if (slot instanceof Integer && (Integer) slot >= 0 && (Integer) slot < inventory.getSize()) {
+                inventory.setItem((Integer) slot, MenuTemplate.createItem(itemConfig));
+            }
+        }
+    }
+
+    /**
+     * 清空背包后按放置计划放入原型物品
+     */
+    private void fillFromTemplate(Inventory inventory, SlotLayout layout) {
+        int size = inventory.getSize();
+        inventory.clear();
+        for (int index = 0; index < layout.getPlacementCount(); index++) {
+            int slot = layout.getPlacementSlot(index);
+            if (slot >= size) {
+                break;
+            }
+            inventory.setItem(slot, layout.getPlacementItem(index));
+        }
+    }
+
+    /**
+     * 显示一种槽位同步方式的流量统计
+     */
+    private void sendTrafficLine(CommandSender sender, String label, TrafficMeter meter) {
+        if (meter.getKeystrokes() == 0) {
+            return;
+        }
+        sender.sendMessage(String.format("§7  %s: §f%d 次输入 §7/ §f%.0f 字节/次输入 §7/ §f%d 个数据包 §7(槽位包 %d, 完整同步 %d)",
+            label, meter.getKeystrokes(), meter.getBytesPerKeystroke(), meter.getPackets(),
+            meter.getSlotPackets(), meter.getFullResyncs()));
+    }
+
     /**
      * 发送帮助信息
      */
@@ -225,6 +600,7 @@ public class AuthGuiCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§e/authgui open <玩家> [类型] §7- 为玩家打开GUI");
         sender.sendMessage("§e/authgui close <玩家> §7- 关闭玩家的GUI");
         sender.sendMessage("§e/authgui info §7- 显示插件信息");
+        sender.sendMessage("§e/authgui bench [次数] §7- 测试菜单构建和重开的耗时与内存分配（最多1000次，分多个tick执行）");
         sender.sendMessage("§7GUI类型: login, register, auto");
     }
 }
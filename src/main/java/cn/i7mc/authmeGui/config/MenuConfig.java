@@ -17,6 +17,7 @@ public class MenuConfig {
     private final List<String> closeActions;
     private final Map<String, ItemConfig> items;
     private final Map<String, ItemConfig> playerItems;
+    private final MenuTemplate template;
     
     public MenuConfig(String title, List<String> commands, List<String> openActions, 
                      List<String> closeActions, Map<String, ItemConfig> items, 
@@ -27,6 +28,9 @@ public class MenuConfig {
         this.closeActions = closeActions;
         this.items = items;
         this.playerItems = playerItems;
+
+        // 物品在加载配置时一次性编译，创建GUI时直接使用
+        this.template = MenuTemplate.compile(items, playerItems);
     }
     
     public String getTitle() {
@@ -52,6 +56,10 @@ public class MenuConfig {
     public Map<String, ItemConfig> getPlayerItems() {
         return playerItems;
     }
+
+    public MenuTemplate getTemplate() {
+        return template;
+    }
     
     /**
      * 物品配置数据类
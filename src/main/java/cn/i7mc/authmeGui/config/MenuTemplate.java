@@ -0,0 +1,119 @@
+package cn.i7mc.authmeGui.config;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的菜单模板
+ * 加载或重载菜单配置时把items和playerItems编译成槽位布局，每个物品配置只构建一次原型物品；
+ * 创建GUI时只需按放置计划放入原型，不再解析槽位、材质、ItemMeta或颜色代码
+ *
+ * 模板创建后不再修改，原型物品在所有GUI之间共享，只能读取（放入Bukkit背包时会被复制）
+ */
+public final class MenuTemplate {
+
+    /** 菜单槽位上限（最大的箱子界面） */
+    public static final int MAX_MENU_SLOTS = 54;
+
+    /** 玩家背包部分的槽位数量：0~26为背包三行，27~35为快捷栏 */
+    public static final int PLAYER_SLOTS = 36;
+
+    private final SlotLayout layout;
+    private final SlotLayout playerLayout;
+
+    private MenuTemplate(SlotLayout layout, SlotLayout playerLayout) {
+        this.layout = layout;
+        this.playerLayout = playerLayout;
+    }
+
+    /**
+     * 编译菜单物品配置
+     * @param items 菜单物品配置
+     * @param playerItems 玩家背包物品配置
+     * @return 菜单模板
+     */
+    public static MenuTemplate compile(Map<String, MenuConfig.ItemConfig> items,
+                                       Map<String, MenuConfig.ItemConfig> playerItems) {
+        return new MenuTemplate(SlotLayout.compile(items, MAX_MENU_SLOTS),
+            SlotLayout.compile(playerItems, PLAYER_SLOTS));
+    }
+
+    /**
+     * 获取菜单物品的槽位布局
+     * @return 槽位布局
+     */
+    public SlotLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 获取玩家背包物品的槽位布局（只显示给客户端，不修改玩家真实的背包）
+     * @return 槽位布局
+     */
+    public SlotLayout getPlayerLayout() {
+        return playerLayout;
+    }
+
+    /**
+     * 获取槽位的原型物品
+     * @param slot 槽位
+     * @return 原型物品（共享，不能修改），槽位为空时返回null
+     */
+    public ItemStack getPrototype(int slot) {
+        return layout.getItem(slot);
+    }
+
+    /**
+     * 获取槽位的物品配置
+     * @param slot 槽位
+     * @return 物品配置，槽位为空时返回null
+     */
+    public MenuConfig.ItemConfig getItemConfig(int slot) {
+        return layout.getItemConfig(slot);
+    }
+
+    /**
+     * 根据配置创建物品
+     * @param itemConfig 物品配置
+     * @return 创建的物品
+     */
+    public static ItemStack createItem(MenuConfig.ItemConfig itemConfig) {
+        Material material = itemConfig.parseMaterial();
+        ItemStack item = new ItemStack(material, itemConfig.getAmount());
+
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            // 设置名称
+            String name = itemConfig.getName();
+            if (name != null && !name.isEmpty()) {
+                meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', name));
+            }
+
+            // 设置Lore
+            List<String> lore = itemConfig.getLore();
+            if (lore != null && !lore.isEmpty()) {
+                List<String> coloredLore = new ArrayList<>();
+                for (String line : lore) {
+                    coloredLore.add(ChatColor.translateAlternateColorCodes('&', line));
+                }
+                meta.setLore(coloredLore);
+            }
+
+            // 设置自定义模型数据
+            Integer customModelData = itemConfig.getCustomModelData();
+            if (customModelData != null) {
+                meta.setCustomModelData(customModelData);
+            }
+
+            item.setItemMeta(meta);
+        }
+
+        return item;
+    }
+}
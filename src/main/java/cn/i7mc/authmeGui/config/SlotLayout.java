@@ -0,0 +1,216 @@
+package cn.i7mc.authmeGui.config;
+
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的槽位布局
+ * 加载配置时把物品配置中的slot（整数或"0-9"这样的范围）和slots列表展开成占用槽位的BitSet，
+ * 并生成按槽位排列的放置计划（int[]槽位 + 对应的原型物品），放置时只需遍历一次数组
+ *
+ * 同一个物品配置占用多个槽位时共享同一个原型物品；布局创建后不再修改
+ */
+public final class SlotLayout {
+
+    private static final SlotLayout EMPTY = new SlotLayout(new BitSet(), new ItemStack[0], new MenuConfig.ItemConfig[0]);
+
+    private final BitSet occupied;
+    private final int[] slots;
+    private final ItemStack[] items;
+    private final ItemStack[] itemsBySlot;
+    private final com.github.retrooper.packetevents.protocol.item.ItemStack[] packetItemsBySlot;
+    private final MenuConfig.ItemConfig[] configsBySlot;
+
+    private SlotLayout(BitSet occupied, ItemStack[] itemsBySlot, MenuConfig.ItemConfig[] configsBySlot) {
+        this.occupied = occupied;
+        this.itemsBySlot = itemsBySlot;
+        this.configsBySlot = configsBySlot;
+        this.packetItemsBySlot = new com.github.retrooper.packetevents.protocol.item.ItemStack[itemsBySlot.length];
+
+        int count = occupied.cardinality();
+        this.slots = new int[count];
+        this.items = new ItemStack[count];
+
+        int index = 0;
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            slots[index] = slot;
+            items[index] = itemsBySlot[slot];
+            index++;
+        }
+
+        // 同一个原型只转换一次
+        Map<ItemStack, com.github.retrooper.packetevents.protocol.item.ItemStack> converted = new IdentityHashMap<>();
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            packetItemsBySlot[slot] = converted.computeIfAbsent(itemsBySlot[slot], SlotLayout::toPacketItem);
+        }
+    }
+
+    /**
+     * 编译物品配置的槽位布局
+     * @param itemConfigs 物品配置
+     * @param maxSlots 槽位数量上限，超出的槽位被忽略
+     * @return 槽位布局
+     */
+    public static SlotLayout compile(Map<String, MenuConfig.ItemConfig> itemConfigs, int maxSlots) {
+        if (itemConfigs == null || itemConfigs.isEmpty()) {
+            return EMPTY;
+        }
+
+        BitSet occupied = new BitSet(maxSlots);
+        ItemStack[] itemsBySlot = new ItemStack[maxSlots];
+        MenuConfig.ItemConfig[] configsBySlot = new MenuConfig.ItemConfig[maxSlots];
+
+        BitSet itemSlots = new BitSet(maxSlots);
+        for (MenuConfig.ItemConfig itemConfig : itemConfigs.values()) {
+            itemSlots.clear();
+            parseSlot(itemConfig.getSlot(), itemSlots, maxSlots);
+            List<String> slotList = itemConfig.getSlots();
+            if (slotList != null) {
+                for (String expression : slotList) {
+                    parseSlot(expression, itemSlots, maxSlots);
+                }
+            }
+            if (itemSlots.isEmpty()) {
+                continue;
+            }
+
+            ItemStack prototype = MenuTemplate.createItem(itemConfig);
+            for (int slot = itemSlots.nextSetBit(0); slot >= 0; slot = itemSlots.nextSetBit(slot + 1)) {
+                itemsBySlot[slot] = prototype;
+                configsBySlot[slot] = itemConfig;
+            }
+            occupied.or(itemSlots);
+        }
+
+        // 按实际用到的槽位裁剪按槽位查找的数组
+        int length = occupied.length();
+        ItemStack[] trimmedItems = new ItemStack[length];
+        MenuConfig.ItemConfig[] trimmedConfigs = new MenuConfig.ItemConfig[length];
+        System.arraycopy(itemsBySlot, 0, trimmedItems, 0, length);
+        System.arraycopy(configsBySlot, 0, trimmedConfigs, 0, length);
+        return new SlotLayout(occupied, trimmedItems, trimmedConfigs);
+    }
+
+    /**
+     * 解析槽位表达式：整数、"3"、"0-9"，或用逗号分隔的多个表达式，例如"0,2,4-6"
+     * 无法解析的部分被忽略
+     * @param expression 槽位表达式
+     * @param target 解析出的槽位
+     * @param maxSlots 槽位数量上限
+     */
+    static void parseSlot(Object expression, BitSet target, int maxSlots) {
+        if (expression instanceof Integer) {
+            int slot = (Integer) expression;
+            if (slot >= 0 && slot < maxSlots) {
+                target.set(slot);
+            }
+            return;
+        }
+        if (!(expression instanceof String)) {
+            return;
+        }
+
+        for (String part : ((String) expression).split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+
+            try {
+                int dash = part.indexOf('-', 1);
+                int from = Integer.parseInt((dash < 0 ? part : part.substring(0, dash)).trim());
+                int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1).trim());
+                int low = Math.max(0, Math.min(from, to));
+                int high = Math.min(maxSlots - 1, Math.max(from, to));
+                if (low <= high) {
+                    target.set(low, high + 1);
+                }
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
+
+    private static com.github.retrooper.packetevents.protocol.item.ItemStack toPacketItem(ItemStack item) {
+        try {
+            return SpigotConversionUtil.fromBukkitItemStack(item);
+        } catch (Exception e) {
+            // PacketEvents未初始化时只保存Bukkit物品
+            return null;
+        }
+    }
+
+    /**
+     * 检查槽位是否被占用
+     * @param slot 槽位
+     * @return 是否被占用
+     */
+    public boolean isOccupied(int slot) {
+        return slot >= 0 && occupied.get(slot);
+    }
+
+    /**
+     * 获取槽位的原型物品
+     * @param slot 槽位
+     * @return 原型物品（共享，不能修改），槽位为空时返回null
+     */
+    public ItemStack getItem(int slot) {
+        return slot >= 0 && slot < itemsBySlot.length ? itemsBySlot[slot] : null;
+    }
+
+    /**
+     * 获取槽位的物品配置
+     * @param slot 槽位
+     * @return 物品配置，槽位为空时返回null
+     */
+    public MenuConfig.ItemConfig getItemConfig(int slot) {
+        return slot >= 0 && slot < configsBySlot.length ? configsBySlot[slot] : null;
+    }
+
+    /**
+     * 获取放置计划中的物品数量
+     * @return 物品数量
+     */
+    public int getPlacementCount() {
+        return slots.length;
+    }
+
+    /**
+     * 获取放置计划中第index个物品的槽位（按槽位从小到大）
+     * @param index 放置序号
+     * @return 槽位
+     */
+    public int getPlacementSlot(int index) {
+        return slots[index];
+    }
+
+    /**
+     * 获取放置计划中第index个物品
+     * @param index 放置序号
+     * @return 原型物品（共享，不能修改）
+     */
+    public ItemStack getPlacementItem(int index) {
+        return items[index];
+    }
+
+    /**
+     * 获取槽位原型物品的数据包形式
+     * @param slot 槽位
+     * @return 物品（共享，不能修改），槽位为空或构建时未能转换则为null
+     */
+    public com.github.retrooper.packetevents.protocol.item.ItemStack getPacketItem(int slot) {
+        return slot >= 0 && slot < packetItemsBySlot.length ? packetItemsBySlot[slot] : null;
+    }
+
+    /**
+     * 布局是否为空
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return slots.length == 0;
+    }
+}
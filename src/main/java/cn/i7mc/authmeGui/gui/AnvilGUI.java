@@ -2,9 +2,13 @@ package cn.i7mc.authmeGui.gui;
 
 import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.config.MenuConfig;
+import cn.i7mc.authmeGui.config.SlotLayout;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
-import cn.i7mc.authmeGui.util.GuiOpenHelper;
-import fr.xephi.authme.api.v3.AuthMeApi;
+import cn.i7mc.authmeGui.session.AuthSession;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.session.AuthStateMachine;
+import cn.i7mc.authmeGui.util.TimingWheel;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -15,10 +19,8 @@ import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 铁砧GUI抽象类
@@ -32,6 +34,14 @@ public abstract class AnvilGUI implements InventoryHolder {
     protected final MenuConfig menuConfig;
     protected final Inventory inventory;
     protected final String guiType;
+
+    // 虚拟铁砧模式下没有服务器端背包，槽位物品保存在这里
+    protected final boolean virtual;
+    private final ItemStack[] virtualSlots = new ItemStack[VirtualAnvil.SIZE];
+    private final String title;
+
+    // 每次复用时递增，之前打开时安排的延迟任务据此判断已过期
+    private int generation;
     
     public AnvilGUI(AuthmeGui plugin, MessageManager messageManager, Player player, 
                    MenuConfig menuConfig, String guiType) {
@@ -41,9 +51,10 @@ public abstract class AnvilGUI implements InventoryHolder {
         this.menuConfig = menuConfig;
         this.guiType = guiType;
         
-        // 创建铁砧背包
-        String title = ChatColor.translateAlternateColorCodes('&', menuConfig.getTitle());
-        this.inventory = Bukkit.createInventory(this, InventoryType.ANVIL, title);
+        // 创建铁砧背包（虚拟铁砧模式下不创建）
+        this.title = ChatColor.translateAlternateColorCodes('&', menuConfig.getTitle());
+        this.virtual = plugin.getGuiManager() != null && plugin.getGuiManager().isVirtualAnvilEnabled();
+        this.inventory = virtual ? null : Bukkit.createInventory(this, InventoryType.ANVIL, title);
         
         // 初始化GUI
         initializeGUI();
@@ -54,33 +65,63 @@ public abstract class AnvilGUI implements InventoryHolder {
      */
     protected void initializeGUI() {
         // 清空背包
-        inventory.clear();
+        if (virtual) {
+            Arrays.fill(virtualSlots, null);
+        } else {
+            inventory.clear();
+        }
         
         // 设置物品
         setupItems();
     }
     
     /**
-     * 设置GUI中的物品
+     * 检查此GUI能否在再次打开时复用
+     * 菜单配置已重载或虚拟铁砧开关已改变时需要创建新的GUI
+     * @param menuConfig 当前的菜单配置
+     * @param virtual 当前是否使用虚拟铁砧
+     * @return 是否可以复用
      */
-    protected void setupItems() {
-        Map<String, MenuConfig.ItemConfig> items = menuConfig.getItems();
+    public boolean canReuse(MenuConfig menuConfig, boolean virtual) {
+        return this.menuConfig == menuConfig && this.virtual == virtual && player.isOnline();
+    }
 
-        for (MenuConfig.ItemConfig itemConfig : items.values()) {
-            ItemStack item = createItemFromConfig(itemConfig);
+    /**
+     * 复用前重置GUI：清空输入，把所有槽位恢复为模板中的初始物品
+     * 只在GUI已经关闭、没有玩家查看时调用
+     */
+    public void recycle() {
+        generation++;
+        setOpening(false);
+        clearInput();
+        initializeGUI();
+    }
 
-            // 设置物品到指定槽位
-            Object slot = itemConfig.getSlot();
-            if (slot instanceof Integer) {
-                int slotIndex = (Integer) slot;
-                if (slotIndex >= 0 && slotIndex < inventory.getSize()) {
-                    inventory.setItem(slotIndex, item);
-                }
+    /**
+     * 获取GUI的复用代数
+     * @return 复用代数
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 设置GUI中的物品
+     */
+    protected void setupItems() {
+        // 按加载配置时编译好的放置计划放入原型物品（槽位从小到大）
+        SlotLayout layout = menuConfig.getTemplate().getLayout();
+        int size = getSize();
+        for (int i = 0; i < layout.getPlacementCount(); i++) {
+            int slot = layout.getPlacementSlot(i);
+            if (slot >= size) {
+                break;
             }
+            setSlot(slot, layout.getPlacementItem(i));
         }
 
         // 为铁砧GUI设置输入提示物品（slot 0）
-        if (inventory.getType() == InventoryType.ANVIL) {
+        if (virtual || inventory.getType() == InventoryType.ANVIL) {
             setupInputPlaceholder();
         }
     }
@@ -89,63 +130,259 @@ public abstract class AnvilGUI implements InventoryHolder {
      * 设置输入提示物品
      */
     protected void setupInputPlaceholder() {
-        // 获取输入提示文本
-        String placeholderText = messageManager.getMessage("gui.password-placeholder", null);
-        if (placeholderText == null || placeholderText.isEmpty()) {
-            placeholderText = "请输入密码";
+        // 使用预先构建的输入提示物品
+        setSlot(0, plugin.getGuiManager().getInputDisplayCache().getInputItem(0));
+    }
+
+    /**
+     * 设置槽位物品（只修改GUI内容，不同步给客户端）
+     * @param slot 槽位
+     * @param item 物品
+     */
+    public void setSlot(int slot, ItemStack item) {
+        if (virtual) {
+            if (slot >= 0 && slot < virtualSlots.length) {
+                virtualSlots[slot] = item;
+            }
+        } else {
+            inventory.setItem(slot, item);
         }
+    }
 
-        // 创建输入提示物品
-        ItemStack placeholderItem = new ItemStack(Material.PAPER);
-        ItemMeta meta = placeholderItem.getItemMeta();
-        if (meta != null) {
-            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', placeholderText));
-            placeholderItem.setItemMeta(meta);
+    /**
+     * 获取槽位物品
+     * @param slot 槽位
+     * @return 物品
+     */
+    public ItemStack getSlot(int slot) {
+        if (virtual) {
+            return slot >= 0 && slot < virtualSlots.length ? virtualSlots[slot] : null;
         }
+        return inventory.getItem(slot);
+    }
 
-        // 设置到第一个槽位
-        inventory.setItem(0, placeholderItem);
+    /**
+     * 获取GUI的槽位数量
+     * @return 槽位数量
+     */
+    public int getSize() {
+        return virtual ? virtualSlots.length : inventory.getSize();
+    }
+
+    /**
+     * 是否为数据包级虚拟铁砧
+     * @return 是否为虚拟铁砧
+     */
+    public boolean isVirtual() {
+        return virtual;
     }
     
     /**
-     * 根据配置创建物品
-     * @param itemConfig 物品配置
-     * @return 创建的物品
+     * 切换确认按钮的"验证中"显示状态
+     * @param verifying 是否处于验证中
      */
-    protected ItemStack createItemFromConfig(MenuConfig.ItemConfig itemConfig) {
-        Material material = itemConfig.parseMaterial();
-        ItemStack item = new ItemStack(material, itemConfig.getAmount());
-        
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            // 设置名称
-            String name = itemConfig.getName();
-            if (name != null && !name.isEmpty()) {
-                meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', name));
-            }
-            
-            // 设置Lore
-            List<String> lore = itemConfig.getLore();
-            if (lore != null && !lore.isEmpty()) {
-                List<String> coloredLore = new ArrayList<>();
-                for (String line : lore) {
-                    coloredLore.add(ChatColor.translateAlternateColorCodes('&', line));
+    protected void setVerifyingState(boolean verifying) {
+        try {
+            if (verifying) {
+                ItemStack verifyingItem = new ItemStack(Material.CLOCK);
+                ItemMeta meta = verifyingItem.getItemMeta();
+                if (meta != null) {
+                    meta.setDisplayName(messageManager.getMessage(getVerifyingMessageKey(), null));
+                    verifyingItem.setItemMeta(meta);
                 }
-                meta.setLore(coloredLore);
+                setSlot(2, verifyingItem);
+            } else {
+                // 恢复配置中的确认按钮
+                setSlot(2, menuConfig.getTemplate().getPrototype(2));
             }
-            
-            // 设置自定义模型数据
-            Integer customModelData = itemConfig.getCustomModelData();
-            if (customModelData != null) {
-                meta.setCustomModelData(customModelData);
+
+            syncSlots(2);
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * 进入验证中状态（密码校验或注册写库开始）
+     */
+    protected void beginVerifying() {
+        plugin.getAuthStateMachine().transition(player, AuthState.VERIFYING);
+        setVerifyingState(true);
+    }
+
+    /**
+     * 检查是否正在验证（防止重复点击触发多次哈希）
+     * @return 是否正在验证
+     */
+    protected boolean isVerifying() {
+        return plugin.getAuthStateMachine().isInState(player, AuthState.VERIFYING);
+    }
+
+    /**
+     * 验证失败，回到输入状态
+     * 如果验证期间玩家关闭了界面，重新打开一个新的GUI
+     */
+    protected void endVerifying() {
+        if (isViewing()) {
+            plugin.getAuthStateMachine().transition(player, AuthState.GUI_OPEN);
+            setVerifyingState(false);
+        } else {
+            reopenThroughManager();
+        }
+    }
+
+    /**
+     * 校验结束但没有完成认证时离开VERIFYING状态，之后才能通过GUI管理器重新打开GUI
+     */
+    protected void leaveVerifying() {
+        AuthStateMachine stateMachine = plugin.getAuthStateMachine();
+        if (stateMachine.isInState(player, AuthState.VERIFYING)) {
+            stateMachine.transition(player, AuthState.AWAITING_GUI);
+        }
+    }
+
+    /**
+     * 检查玩家当前是否正在查看此GUI
+     * @return 是否正在查看
+     */
+    public boolean isViewing() {
+        try {
+            if (virtual) {
+                AuthSession session = getSession();
+                return player.isOnline() && session != null && session.getViewingGui() == this;
             }
-            
-            item.setItemMeta(meta);
+            return player.isOnline() && player.getOpenInventory().getTopInventory().equals(inventory);
+        } catch (Exception e) {
+            return false;
         }
-        
-        return item;
     }
-    
+
+    /**
+     * 通过GUI管理器重新打开同类型的GUI
+     * 校验中的玩家先离开VERIFYING状态，GUI管理器不会为校验中的玩家打开GUI
+     */
+    private void reopenThroughManager() {
+        leaveVerifying();
+        if ("register".equals(guiType)) {
+            plugin.getGuiManager().openRegisterGUI(player);
+        } else {
+            plugin.getGuiManager().openLoginGUI(player);
+        }
+    }
+
+    /**
+     * 获取玩家的认证会话
+     * @return 会话，玩家已退出时返回null
+     */
+    protected AuthSession getSession() {
+        return plugin.getSessionRegistry().get(player);
+    }
+
+    /**
+     * 设置会话的GUI打开标记
+     * @param opening 是否正在打开
+     */
+    private void setOpening(boolean opening) {
+        AuthSession session = getSession();
+        if (session != null) {
+            session.setOpening(opening);
+        }
+    }
+
+    /**
+     * 取出玩家输入的真实密码（不是掩码）用于校验
+     * 会话中的输入缓冲随即清空，输入框恢复为提示物品，玩家需要重新输入
+     * @return 真实密码，没有输入时返回null
+     */
+    protected String takePassword() {
+        AuthSession session = getSession();
+        if (session == null) {
+            return null;
+        }
+
+        String password = session.takePassword();
+        resetInputSlot();
+        return password;
+    }
+
+    /**
+     * 把输入槽位恢复为提示物品并同步给客户端
+     * 客户端随后发来的重命名文本是提示文本，输入记录保持为空
+     */
+    protected void resetInputSlot() {
+        try {
+            setupInputPlaceholder();
+            syncSlots(0);
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * 在当前界面上重置输入：清空输入缓冲，把输入槽位和确认按钮恢复为初始物品
+     * 不关闭也不重新打开界面，只向客户端发送这两个槽位
+     */
+    protected void resetInput() {
+        try {
+            clearInput();
+            setupInputPlaceholder();
+            setSlot(2, menuConfig.getTemplate().getPrototype(2));
+            syncSlots(0, 2);
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * 把指定槽位的当前物品同步给客户端
+     * 虚拟铁砧只发送这些槽位的SET_SLOT数据包；服务器端背包由服务器每tick的容器同步发送变化的槽位，
+     * 关闭定向同步时重新同步整个背包
+     * @param slots 槽位
+     */
+    protected void syncSlots(int... slots) {
+        if (!player.isOnline()) {
+            return;
+        }
+
+        AuthSession session = getSession();
+        if (virtual) {
+            if (session != null) {
+                for (int slot : slots) {
+                    VirtualAnvil.sendSlot(player, session, slot, getSlot(slot));
+                }
+            }
+            return;
+        }
+
+        if (!plugin.getGuiManager().isSlotPacketsEnabled()) {
+            player.updateInventory();
+        }
+    }
+
+    /**
+     * 清空玩家的输入记录
+     */
+    protected void clearInput() {
+        AuthSession session = getSession();
+        if (session != null) {
+            session.clearInput();
+        }
+    }
+
+    /**
+     * 获取"验证中"状态显示的消息键
+     * @return 消息键
+     */
+    protected String getVerifyingMessageKey() {
+        return "gui.verifying";
+    }
+
+    /**
+     * 获取指定槽位的物品配置
+     * @param slotIndex 槽位
+     * @return 物品配置，如果没有则返回null
+     */
+    protected MenuConfig.ItemConfig getItemConfigAt(int slotIndex) {
+        return menuConfig.getTemplate().getItemConfig(slotIndex);
+    }
+
     /**
      * 打开GUI给玩家
      */
@@ -156,6 +393,12 @@ public abstract class AnvilGUI implements InventoryHolder {
                 return;
             }
 
+            // 虚拟铁砧直接发送数据包打开，不受登录插件的背包限制
+            if (virtual) {
+                openVirtual();
+                return;
+            }
+
             // 检查inventory是否为null
             if (inventory == null) {
                 return;
@@ -171,6 +414,61 @@ public abstract class AnvilGUI implements InventoryHolder {
         }
     }
 
+    /**
+     * 通过数据包打开虚拟铁砧
+     */
+    private void openVirtual() {
+        AuthSession session = plugin.getSessionRegistry().getOrCreate(player);
+
+        // 玩家可能还打开着其他界面，先关闭
+        player.closeInventory();
+
+        GuiOpener guiOpener = plugin.getGuiManager().getGuiOpener();
+        long start = System.nanoTime();
+        try {
+            VirtualAnvil.open(player, session, this, title, virtualSlots);
+        } catch (RuntimeException e) {
+            guiOpener.recordAttempt(GuiOpener.Strategy.PACKET, start);
+            guiOpener.recordResult(GuiOpener.Strategy.PACKET, false);
+            throw e;
+        }
+        guiOpener.recordAttempt(GuiOpener.Strategy.PACKET, start);
+        guiOpener.recordResult(GuiOpener.Strategy.PACKET, true);
+        plugin.getAuthStateMachine().transition(player, AuthState.GUI_OPEN);
+        executeActions(menuConfig.getOpenActions());
+    }
+
+    /**
+     * 处理虚拟铁砧中的点击（主线程调用）
+     * 客户端点击时会预测性地拿起物品，先重新发送界面内容纠正客户端
+     * @param slot 容器槽位
+     */
+    public void handleVirtualClick(int slot) {
+        AuthSession session = getSession();
+        if (!virtual || session == null || session.getViewingGui() != this) {
+            return;
+        }
+
+        VirtualAnvil.sendContents(player, session, virtualSlots, menuConfig.getTemplate().getPlayerLayout());
+        if (slot >= 0 && slot < virtualSlots.length) {
+            handleClick(slot, virtualSlots[slot]);
+        }
+    }
+
+    /**
+     * 处理玩家关闭虚拟铁砧（主线程调用）
+     */
+    public void handleVirtualClose() {
+        AuthSession session = getSession();
+        if (!virtual || session == null || session.getViewingGui() != this) {
+            return;
+        }
+
+        session.clearViewingGui(this);
+        handleClose();
+        plugin.getGuiManager().closeGUI(player);
+    }
+
     /**
      * 强制打开GUI，使用多种方法尝试绕过限制
      */
@@ -179,20 +477,22 @@ public abstract class AnvilGUI implements InventoryHolder {
         boolean success = attemptDirectOpen();
 
         if (!success) {
-            // 方法2：延迟重试
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                if (player.isOnline()) {
+            // 方法2：延迟重试（GUI在此期间被复用时放弃）
+            TimingWheel timingWheel = plugin.getTimingWheel();
+            int openGeneration = generation;
+            timingWheel.schedule(player.getUniqueId(), 10L, () -> {
+                if (player.isOnline() && generation == openGeneration) {
                     boolean retrySuccess = attemptDirectOpen();
                     if (!retrySuccess) {
                         // 方法3：使用更长的延迟再次尝试
-                        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                            if (player.isOnline()) {
+                        timingWheel.schedule(player.getUniqueId(), 40L, () -> {
+                            if (player.isOnline() && generation == openGeneration) {
                                 attemptDirectOpen();
                             }
-                        }, 40L); // 2秒后再试
+                        }); // 2秒后再试
                     }
                 }
-            }, 10L); // 0.5秒后重试
+            }); // 0.5秒后重试
         }
     }
 
@@ -202,59 +502,32 @@ public abstract class AnvilGUI implements InventoryHolder {
      */
     private boolean attemptDirectOpen() {
         try {
-            // 将玩家添加到白名单，防止其他逻辑干扰
-            GuiOpenHelper.addToOpeningList(player);
-
-            // 尝试使用AuthMe API打开GUI
-            boolean authMeOpenSuccess = false;
-            try {
-                AuthMeApi authMeApi = AuthMeApi.getInstance();
-                if (authMeApi != null) {
-                    // 尝试查找AuthMe的openInventory方法
-                    Method[] methods = AuthMeApi.class.getDeclaredMethods();
-                    Method openInventoryMethod = null;
-
-                    for (Method method : methods) {
-                        if ("openInventory".equals(method.getName()) &&
-                            method.getParameterCount() == 2 &&
-                            method.getParameterTypes()[0] == Player.class &&
-                            method.getParameterTypes()[1] == Inventory.class) {
-                            openInventoryMethod = method;
-                            break;
-                        }
-                    }
+            // 标记会话正在打开GUI，防止其他逻辑干扰
+            setOpening(true);
 
-                    if (openInventoryMethod != null) {
-                        openInventoryMethod.setAccessible(true);
-                        openInventoryMethod.invoke(authMeApi, player, inventory);
-                        authMeOpenSuccess = true;
-                    }
-                }
-            } catch (Exception authMeException) {
-                // AuthMe API调用失败，继续使用普通方法
-            }
-
-            // 如果AuthMe API失败或不可用，使用普通方法
-            if (!authMeOpenSuccess) {
-                player.openInventory(inventory);
-            }
+            // 使用启动时选定的打开方式（AuthMe API或Bukkit）
+            GuiOpener guiOpener = plugin.getGuiManager().getGuiOpener();
+            GuiOpener.Strategy strategy = guiOpener.open(player, inventory);
 
             // 检查是否真的打开了
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, () -> {
                 try {
                     if (player.isOnline()) {
                         if (player.getOpenInventory().getTopInventory().equals(inventory)) {
                             // 成功打开
+                            guiOpener.recordResult(strategy, true);
+                            plugin.getAuthStateMachine().transition(player, AuthState.GUI_OPEN);
                             executeActions(menuConfig.getOpenActions());
                         } else {
                             // 打开失败
+                            guiOpener.recordResult(strategy, false);
                         }
                     }
                 } finally {
-                    // 无论成功还是失败，都从白名单中移除玩家
-                    GuiOpenHelper.removeFromOpeningList(player);
+                    // 无论成功还是失败，都清除打开标记
+                    setOpening(false);
                 }
-            }, 1L); // 1 tick后验证
+            }); // 1 tick后验证
 
             return true;
         } catch (Exception e) {
@@ -267,11 +540,26 @@ public abstract class AnvilGUI implements InventoryHolder {
      */
     public void closeGUI() {
         try {
-            // 从白名单中移除玩家
-            GuiOpenHelper.removeFromOpeningList(player);
+            // 清除打开标记
+            setOpening(false);
+
+            // 界面关闭后不再保留输入的密码
+            clearInput();
 
             // 确保在主线程中关闭GUI
-            if (plugin.getServer().isPrimaryThread()) {
+            if (virtual) {
+                if (plugin.getServer().isPrimaryThread()) {
+                    VirtualAnvil.close(player, getSession(), this);
+                    executeActions(menuConfig.getCloseActions());
+                } else {
+                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        if (player.isOnline()) {
+                            VirtualAnvil.close(player, getSession(), this);
+                            executeActions(menuConfig.getCloseActions());
+                        }
+                    });
+                }
+            } else if (plugin.getServer().isPrimaryThread()) {
                 player.closeInventory();
 
                 // 执行关闭动作
@@ -298,66 +586,108 @@ public abstract class AnvilGUI implements InventoryHolder {
      */
     public void handleClose() {
         try {
+            // 玩家关闭界面后不再保留输入的密码
+            clearInput();
+
+            // 配置的玩家背包物品只显示给了客户端，关闭后重新同步玩家真实的背包
+            if (!virtual && !menuConfig.getTemplate().getPlayerLayout().isEmpty()) {
+                plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, () -> {
+                    if (player.isOnline()) {
+                        player.updateInventory();
+                    }
+                });
+            }
+
             // 执行关闭动作
             executeActions(menuConfig.getCloseActions());
 
+            // 验证进行中关闭界面时不立即重开，由验证结果决定
+            AuthStateMachine stateMachine = plugin.getAuthStateMachine();
+            if (stateMachine.isInState(player, AuthState.VERIFYING)) {
+                return;
+            }
+
             // 检查是否需要重新打开GUI
             if (shouldReopenAfterClose()) {
+                stateMachine.transition(player, AuthState.AWAITING_GUI);
+
                 // 延迟重新打开GUI，避免无限循环
-                // 使用更长的延迟来给AuthMe事件处理时间
-                plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+                // 使用更长的延迟来给登录插件事件处理时间
+                plugin.getTimingWheel().schedule(player.getUniqueId(), 40L, () -> {
                     if (player.isOnline()) {
-                        // 再次检查玩家状态，确保真的需要重新打开
-                        try {
-                            AuthMeApi authMeApi = AuthMeApi.getInstance();
-                            if (authMeApi != null && !authMeApi.isAuthenticated(player)) {
-                                // 只有在玩家确实需要认证时才重新打开
-                                openGUI();
-                            }
-                        } catch (Exception e) {
-                            // 如果检查失败，不重新打开
-                        }
+                        reopenIfStillRequired();
                     }
-                }, 40L); // 2秒延迟，给AuthMe事件处理更多时间
+                }); // 2秒延迟，给登录插件事件处理更多时间
             }
         } catch (Exception e) {
         }
     }
 
+    /**
+     * 再次检查玩家状态，确保真的需要重新打开
+     * 注册GUI需要查询注册状态，查询在工作线程中完成后回到主线程打开
+     */
+    private void reopenIfStillRequired() {
+        // 等待期间玩家可能已经认证、被踢出或已经打开了新的GUI
+        if (!plugin.getAuthStateMachine().isInState(player, AuthState.AWAITING_GUI)
+                || plugin.getGuiManager().hasActiveGUI(player)) {
+            return;
+        }
+
+        LoginPluginManager loginPluginManager = plugin.getLoginPluginManager();
+        if (loginPluginManager == null || !loginPluginManager.isPluginEnabled()
+                || loginPluginManager.isPlayerLoggedIn(player)) {
+            return;
+        }
+
+        if (!"register".equals(guiType)) {
+            // 只有在玩家确实需要认证时才重新打开
+            reopenThroughManager();
+            return;
+        }
+
+        // 对于注册GUI，如果玩家已经注册，不需要重新打开
+        loginPluginManager.isRegisteredAsync(player).whenCompleteAsync((registered, error) -> {
+            if (error != null || Boolean.TRUE.equals(registered) || !player.isOnline()
+                    || loginPluginManager.isPlayerLoggedIn(player)) {
+                // 如果检查失败，不重新打开
+                return;
+            }
+            reopenThroughManager();
+        }, plugin.getHashingExecutor().mainThread());
+    }
+
     /**
      * 检查是否应该在关闭后重新打开GUI
      * @return 是否应该重新打开
      */
     protected boolean shouldReopenAfterClose() {
-        // 如果玩家在白名单中（正在进行某些操作），不重新打开
-        if (GuiOpenHelper.isInOpeningList(player)) {
+        // 如果正在打开GUI（打开过程中的关闭事件），不重新打开
+        AuthSession session = getSession();
+        if (session != null && session.isOpening()) {
             return false;
         }
 
-        // 如果玩家已经认证成功，不重新打开
-        if (GuiOpenHelper.isInAuthenticatedList(player)) {
+        // 如果玩家已经认证成功或被踢出，不重新打开
+        if (!plugin.getAuthStateMachine().needsAuthentication(player)) {
             return false;
         }
 
-        // 检查AuthMe状态
+        // 此GUI已经被新的GUI替换，不重新打开
+        if (plugin.getGuiManager().getActiveGUI(player) != this) {
+            return false;
+        }
+
+        // 检查登录插件状态
         try {
-            AuthMeApi authMeApi = AuthMeApi.getInstance();
-            if (authMeApi != null) {
+            LoginPluginManager loginPluginManager = plugin.getLoginPluginManager();
+            if (loginPluginManager != null && loginPluginManager.isPluginEnabled()) {
                 // 如果玩家已经登录，不需要重新打开
-                if (authMeApi.isAuthenticated(player)) {
-                    return false;
-                }
-
-                // 对于注册GUI，如果玩家已经注册，也不需要重新打开
-                if ("register".equals(guiType) && authMeApi.isRegistered(player.getName())) {
-                    return false;
-                }
-
-                // 如果玩家还没有登录且需要认证，才重新打开GUI
-                return true;
+                // 注册状态需要查询数据库，留到延迟重开时异步检查
+                return !loginPluginManager.isPlayerLoggedIn(player);
             }
         } catch (Exception e) {
-            // 如果AuthMe API调用失败，为了安全起见不重新打开
+            // 如果登录插件调用失败，为了安全起见不重新打开
         }
 
         return false;
@@ -436,6 +766,14 @@ public abstract class AnvilGUI implements InventoryHolder {
         return guiType;
     }
     
+    /**
+     * 获取菜单配置
+     * @return 菜单配置
+     */
+    public MenuConfig getMenuConfig() {
+        return menuConfig;
+    }
+
     /**
      * 获取玩家
      * @return 玩家对象
@@ -444,6 +782,10 @@ public abstract class AnvilGUI implements InventoryHolder {
         return player;
     }
     
+    /**
+     * 获取服务器端背包
+     * @return 背包，虚拟铁砧模式下返回null
+     */
     @Override
     public Inventory getInventory() {
         return inventory;
@@ -0,0 +1,175 @@
+package cn.i7mc.authmeGui.gui;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GUI打开策略
+ * 插件启动时探测一次可用的打开方式并缓存，之后每次打开都直接使用选定的策略：
+ * AuthMe API中存在openInventory(Player, Inventory)时解析成MethodHandle绕过AuthMe的背包限制，
+ * 否则使用Bukkit的openInventory；虚拟铁砧由数据包直接打开
+ *
+ * 每种策略分别统计尝试次数、成功和失败次数以及调用耗时，计数可在任意线程读取
+ */
+public class GuiOpener {
+
+    private static final String AUTHME_API_CLASS = "fr.xephi.authme.api.v3.AuthMeApi";
+
+    /**
+     * 打开方式
+     */
+    public enum Strategy {
+        /** 通过AuthMe API的openInventory打开 */
+        AUTHME_BYPASS("AuthMe API"),
+        /** Bukkit的Player.openInventory */
+        BUKKIT("Bukkit"),
+        /** 数据包级虚拟铁砧 */
+        PACKET("虚拟铁砧");
+
+        private final String displayName;
+
+        Strategy(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // 签名统一为 (Object api, Player, Inventory)void / ()Object，便于invokeExact
+    private final MethodHandle authMeGetInstance;
+    private final MethodHandle authMeOpenInventory;
+
+    private final LongAdder[] attempts = newAdders();
+    private final LongAdder[] successes = newAdders();
+    private final LongAdder[] failures = newAdders();
+    private final LongAdder[] latencyNanos = newAdders();
+
+    /**
+     * 探测可用的打开方式（只在插件启动时调用一次）
+     */
+    public GuiOpener() {
+        MethodHandle getInstance = null;
+        MethodHandle openInventory = null;
+        try {
+            Class<?> apiClass = Class.forName(AUTHME_API_CLASS, false, GuiOpener.class.getClassLoader());
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            for (Method method : apiClass.getDeclaredMethods()) {
+                if ("openInventory".equals(method.getName()) &&
+                    method.getParameterCount() == 2 &&
+                    method.getParameterTypes()[0] == Player.class &&
+                    method.getParameterTypes()[1] == Inventory.class) {
+                    method.setAccessible(true);
+                    openInventory = lookup.unreflect(method)
+                        .asType(MethodType.methodType(void.class, Object.class, Player.class, Inventory.class));
+                    break;
+                }
+            }
+
+            if (openInventory != null) {
+                getInstance = lookup.findStatic(apiClass, "getInstance", MethodType.methodType(apiClass))
+                    .asType(MethodType.methodType(Object.class));
+            }
+        } catch (Throwable e) {
+            // 没有安装AuthMe（只使用CatSeedLogin）或API不兼容时不使用AuthMe打开方式
+            getInstance = null;
+            openInventory = null;
+        }
+        this.authMeGetInstance = getInstance;
+        this.authMeOpenInventory = openInventory;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Strategy.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * 获取服务器端背包使用的打开方式
+     * @return 打开方式
+     */
+    public Strategy getStrategy() {
+        return authMeOpenInventory != null ? Strategy.AUTHME_BYPASS : Strategy.BUKKIT;
+    }
+
+    /**
+     * 为玩家打开服务器端背包
+     * 选定的AuthMe打开方式调用失败时改用Bukkit打开，并记为AuthMe方式的一次失败
+     * @param player 玩家
+     * @param inventory 背包
+     * @return 实际使用的打开方式，打开结果需要之后通过recordResult记录
+     */
+    public Strategy open(Player player, Inventory inventory) {
+        if (authMeOpenInventory != null) {
+            long start = System.nanoTime();
+            try {
+                Object api = (Object) authMeGetInstance.invokeExact();
+                if (api != null) {
+                    authMeOpenInventory.invokeExact(api, player, inventory);
+                    recordAttempt(Strategy.AUTHME_BYPASS, start);
+                    return Strategy.AUTHME_BYPASS;
+                }
+            } catch (Throwable e) {
+                recordAttempt(Strategy.AUTHME_BYPASS, start);
+                failures[Strategy.AUTHME_BYPASS.ordinal()].increment();
+            }
+        }
+
+        long start = System.nanoTime();
+        player.openInventory(inventory);
+        recordAttempt(Strategy.BUKKIT, start);
+        return Strategy.BUKKIT;
+    }
+
+    /**
+     * 记录一次打开调用
+     * @param strategy 打开方式
+     * @param startNanos 调用开始时的System.nanoTime
+     */
+    public void recordAttempt(Strategy strategy, long startNanos) {
+        attempts[strategy.ordinal()].increment();
+        latencyNanos[strategy.ordinal()].add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录打开结果（玩家是否真的看到了界面）
+     * @param strategy 打开方式
+     * @param success 是否成功
+     */
+    public void recordResult(Strategy strategy, boolean success) {
+        (success ? successes : failures)[strategy.ordinal()].increment();
+    }
+
+    public long getAttempts(Strategy strategy) {
+        return attempts[strategy.ordinal()].sum();
+    }
+
+    public long getSuccesses(Strategy strategy) {
+        return successes[strategy.ordinal()].sum();
+    }
+
+    public long getFailures(Strategy strategy) {
+        return failures[strategy.ordinal()].sum();
+    }
+
+    /**
+     * 获取平均调用耗时
+     * @param strategy 打开方式
+     * @return 平均耗时（微秒），没有调用时返回0
+     */
+    public double getAverageLatencyMicros(Strategy strategy) {
+        long count = getAttempts(strategy);
+        return count == 0 ? 0.0 : latencyNanos[strategy.ordinal()].sum() / 1000.0 / count;
+    }
+}
@@ -0,0 +1,150 @@
+package cn.i7mc.authmeGui.gui;
+
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * 输入显示缓存
+ * 掩码字符串、输入槽位物品和结果槽位物品按密码长度（0~最大密码长度）在加载配置时一次性构建，
+ * 每次输入只按长度取出，除数据包本身外不再分配对象
+ *
+ * 缓存的物品在所有玩家之间共享，只能读取，不能修改
+ */
+public class InputDisplayCache {
+
+    /**
+     * 掩码字符，输入槽位和客户端输入框中每个密码字符都显示为它
+     */
+    public static final char MASK_CHAR = '*';
+
+    private static final String DEFAULT_PLACEHOLDER = "请输入密码";
+    private static final String CONFIRM_TEXT = "确认密码";
+
+    private final String[] masks;
+    private final ItemStack[] inputItems;
+    private final com.github.retrooper.packetevents.protocol.item.ItemStack[] inputPacketItems;
+    private final ItemStack placeholderResultItem;
+    private final ItemStack confirmResultItem;
+    private final com.github.retrooper.packetevents.protocol.item.ItemStack placeholderResultPacketItem;
+    private final com.github.retrooper.packetevents.protocol.item.ItemStack confirmResultPacketItem;
+
+    /**
+     * @param maxLength 最大密码长度
+     * @param placeholder 输入提示文本（未转换颜色代码）
+     */
+    public InputDisplayCache(int maxLength, String placeholder) {
+        int size = Math.max(0, maxLength) + 1;
+        String placeholderText = placeholder == null || placeholder.isEmpty() ? DEFAULT_PLACEHOLDER : placeholder;
+
+        this.masks = new String[size];
+        this.inputItems = new ItemStack[size];
+        this.inputPacketItems = new com.github.retrooper.packetevents.protocol.item.ItemStack[size];
+
+        StringBuilder mask = new StringBuilder(size);
+        for (int length = 0; length < size; length++) {
+            masks[length] = mask.toString();
+            inputItems[length] = createItem(Material.PAPER, length == 0 ? placeholderText : masks[length]);
+            inputPacketItems[length] = toPacketItem(inputItems[length]);
+            mask.append(MASK_CHAR);
+        }
+
+        this.placeholderResultItem = createItem(Material.LIME_STAINED_GLASS_PANE, placeholderText);
+        this.confirmResultItem = createItem(Material.LIME_STAINED_GLASS_PANE, CONFIRM_TEXT);
+        this.placeholderResultPacketItem = toPacketItem(placeholderResultItem);
+        this.confirmResultPacketItem = toPacketItem(confirmResultItem);
+    }
+
+    /**
+     * 获取指定长度的掩码字符串
+     * @param length 长度
+     * @return 掩码字符串
+     */
+    public String getMask(int length) {
+        return length < masks.length ? masks[Math.max(0, length)] : String.valueOf(MASK_CHAR).repeat(length);
+    }
+
+    /**
+     * 获取输入槽位（slot 0）显示的物品，长度为0时是输入提示
+     * @param length 掩码长度
+     * @return 物品（共享，不能修改）
+     */
+    public ItemStack getInputItem(int length) {
+        return length < inputItems.length ? inputItems[Math.max(0, length)] : createItem(Material.PAPER, getMask(length));
+    }
+
+    /**
+     * 获取输入槽位物品的数据包形式
+     * @param length 掩码长度
+     * @return 物品（共享，不能修改）
+     */
+    public com.github.retrooper.packetevents.protocol.item.ItemStack getInputPacketItem(int length) {
+        return length < inputPacketItems.length ? inputPacketItems[Math.max(0, length)] : toPacketItem(getInputItem(length));
+    }
+
+    /**
+     * 获取结果槽位（slot 2）显示的物品
+     * @param hasInput 是否已有输入
+     * @return 物品（共享，不能修改）
+     */
+    public ItemStack getResultItem(boolean hasInput) {
+        return hasInput ? confirmResultItem : placeholderResultItem;
+    }
+
+    /**
+     * 获取结果槽位物品的数据包形式
+     * @param hasInput 是否已有输入
+     * @return 物品（共享，不能修改）
+     */
+    public com.github.retrooper.packetevents.protocol.item.ItemStack getResultPacketItem(boolean hasInput) {
+        return hasInput ? confirmResultPacketItem : placeholderResultPacketItem;
+    }
+
+    /**
+     * 获取缓存的最大长度
+     * @return 最大长度
+     */
+    public int getMaxLength() {
+        return masks.length - 1;
+    }
+
+    /**
+     * 计算输入槽位物品名称中的掩码字符数量（客户端打开铁砧或槽位更新时把它作为输入框的内容）
+     * @param item 输入槽位物品
+     * @return 名称全部由掩码字符组成时返回其长度，否则返回0
+     */
+    public static int countMask(ItemStack item) {
+        ItemMeta meta = item != null ? item.getItemMeta() : null;
+        if (meta == null || !meta.hasDisplayName()) {
+            return 0;
+        }
+        String name = meta.getDisplayName();
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != MASK_CHAR) {
+                return 0;
+            }
+        }
+        return name.length();
+    }
+
+    private static ItemStack createItem(Material material, String name) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', name));
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+
+    private static com.github.retrooper.packetevents.protocol.item.ItemStack toPacketItem(ItemStack item) {
+        try {
+            return SpigotConversionUtil.fromBukkitItemStack(item);
+        } catch (Exception e) {
+            // PacketEvents未初始化时只缓存Bukkit物品
+            return null;
+        }
+    }
+}
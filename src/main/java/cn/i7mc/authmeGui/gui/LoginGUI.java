@@ -2,10 +2,10 @@ package cn.i7mc.authmeGui.gui;
 
 import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.config.MenuConfig;
-import cn.i7mc.authmeGui.manager.AuthMeManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
-import cn.i7mc.authmeGui.util.AnvilInputUtil;
-import cn.i7mc.authmeGui.util.GuiOpenHelper;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.util.HashingExecutor;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
@@ -15,12 +15,12 @@ import org.bukkit.inventory.ItemStack;
  */
 public class LoginGUI extends AnvilGUI {
     
-    private final AuthMeManager authMeManager;
+    private final LoginPluginManager loginPluginManager;
     
-    public LoginGUI(AuthmeGui plugin, MessageManager messageManager, AuthMeManager authMeManager,
+    public LoginGUI(AuthmeGui plugin, MessageManager messageManager, LoginPluginManager loginPluginManager,
                    Player player, MenuConfig menuConfig) {
         super(plugin, messageManager, player, menuConfig, "login");
-        this.authMeManager = authMeManager;
+        this.loginPluginManager = loginPluginManager;
     }
     
     @Override
@@ -74,16 +74,13 @@ public class LoginGUI extends AnvilGUI {
      * 处理重置输入
      */
     private void handleResetInput() {
-        // 清空玩家的输入记录
-        AnvilInputUtil.removePlayerInput(player.getName());
-
-        // 清空输入框（重新打开GUI）
-        closeGUI();
+        // 校验进行中时忽略重置
+        if (isVerifying()) {
+            return;
+        }
 
-        // 延迟重新打开
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            openGUI();
-        }, 1L);
+        // 清空输入记录并在当前界面上恢复输入框和确认按钮
+        resetInput();
 
         // 发送提示消息
         if (messageManager != null) {
@@ -95,8 +92,15 @@ public class LoginGUI extends AnvilGUI {
      * 处理确认登录
      */
     private void handleConfirmLogin() {
-        // 从AnvilInputUtil获取玩家输入的真实密码（不是掩码）
-        String password = AnvilInputUtil.getRealPassword(player.getName());
+        // 已有校验在进行中，忽略重复点击
+        if (isVerifying()) {
+            messageManager.sendMessage(player, "gui.verifying", null);
+            return;
+        }
+
+        // 从会话取出玩家输入的真实密码（不是掩码）
+        // 取出后会话中的输入缓冲即被清空，这里的字符串只用于本次校验
+        String password = takePassword();
         if (password != null && !password.trim().isEmpty()) {
             // 直接尝试登录，不再调用handleInput
             attemptLogin(password.trim());
@@ -110,36 +114,56 @@ public class LoginGUI extends AnvilGUI {
      * @param password 密码
      */
     private void attemptLogin(String password) {
-        // 检查玩家是否已注册
-        if (!authMeManager.isPlayerRegistered(player)) {
-            messageManager.sendMessage(player, "gui.login-failed", null);
-            return;
-        }
-
         // 验证密码格式
-        if (!authMeManager.isValidPasswordWithMessage(player, password)) {
-            return;
-        }
-        
-        // 检查密码是否正确
-        if (!authMeManager.checkPassword(player, password)) {
-            messageManager.sendMessage(player, "gui.login-failed", null);
+        if (!loginPluginManager.isValidPasswordWithMessage(player, password)) {
             return;
         }
         
+        // 进入验证中状态，在工作线程中校验密码（未注册的玩家校验结果为false）
+        beginVerifying();
+
+        HashingExecutor hashingExecutor = plugin.getHashingExecutor();
+        loginPluginManager.checkPasswordAsync(player, password)
+            .whenCompleteAsync((correct, error) -> {
+                if (!player.isOnline()) {
+                    return;
+                }
+
+                if (error != null && HashingExecutor.isRejected(error)) {
+                    // 队列已满或超出玩家/IP上限，提示玩家稍后再试
+                    endVerifying();
+                    messageManager.sendMessage(player, "gui.server-busy", null);
+                    return;
+                }
+
+                if (error != null || !Boolean.TRUE.equals(correct)) {
+                    endVerifying();
+                    messageManager.sendMessage(player, "gui.login-failed", null);
+                    return;
+                }
+
+                completeLogin();
+            }, hashingExecutor.mainThread());
+    }
+
+    /**
+     * 密码校验通过后在主线程完成登录
+     */
+    private void completeLogin() {
         // 关闭GUI（在登录前关闭，避免事件冲突）
         closeGUI();
 
         // 强制登录
-        if (authMeManager.forceLogin(player)) {
-            // 立即将玩家添加到认证成功白名单，防止GUI重新打开
-            GuiOpenHelper.addToAuthenticatedList(player);
+        if (loginPluginManager.forceLogin(player)) {
+            // 立即进入已认证状态，防止GUI重新打开
+            plugin.getAuthStateMachine().transition(player, AuthState.AUTHENTICATED);
 
             // 登录成功
-            authMeManager.handleLoginSuccess(player);
+            loginPluginManager.handleLoginSuccess(player);
         } else {
-            // 登录失败
-            authMeManager.handleFailure(player, "登录失败");
+            // 登录失败，重新打开登录界面
+            loginPluginManager.handleFailure(player, "登录失败");
+            endVerifying();
         }
     }
     
@@ -148,12 +172,6 @@ public class LoginGUI extends AnvilGUI {
      * @return 取消按钮配置
      */
     private MenuConfig.ItemConfig getCancelItem() {
-        for (MenuConfig.ItemConfig item : menuConfig.getItems().values()) {
-            Object slot = item.getSlot();
-            if (slot instanceof Integer && (Integer) slot == 0) {
-                return item;
-            }
-        }
-        return null;
+        return getItemConfigAt(0);
     }
 }
@@ -2,10 +2,10 @@ package cn.i7mc.authmeGui.gui;
 
 import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.config.MenuConfig;
-import cn.i7mc.authmeGui.manager.AuthMeManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
-import cn.i7mc.authmeGui.util.AnvilInputUtil;
-import cn.i7mc.authmeGui.util.GuiOpenHelper;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.util.HashingExecutor;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
@@ -15,12 +15,12 @@ import org.bukkit.inventory.ItemStack;
  */
 public class RegisterGUI extends AnvilGUI {
     
-    private final AuthMeManager authMeManager;
+    private final LoginPluginManager loginPluginManager;
     
-    public RegisterGUI(AuthmeGui plugin, MessageManager messageManager, AuthMeManager authMeManager,
+    public RegisterGUI(AuthmeGui plugin, MessageManager messageManager, LoginPluginManager loginPluginManager,
                       Player player, MenuConfig menuConfig) {
         super(plugin, messageManager, player, menuConfig, "register");
-        this.authMeManager = authMeManager;
+        this.loginPluginManager = loginPluginManager;
     }
     
     @Override
@@ -73,11 +73,13 @@ public class RegisterGUI extends AnvilGUI {
      * 处理重置输入
      */
     private void handleResetInput() {
-        // 清空玩家的输入记录
-        AnvilInputUtil.removePlayerInput(player.getName());
+        // 注册进行中时忽略重置
+        if (isVerifying()) {
+            return;
+        }
 
-        // 重新初始化GUI内容，清空输入框
-        initializeGUI();
+        // 清空输入记录并在当前界面上恢复输入框和确认按钮
+        resetInput();
 
         // 发送提示消息
         if (messageManager != null) {
@@ -89,8 +91,15 @@ public class RegisterGUI extends AnvilGUI {
      * 处理确认注册
      */
     private void handleConfirmRegister() {
-        // 从AnvilInputUtil获取玩家输入的真实密码（不是掩码）
-        String password = AnvilInputUtil.getRealPassword(player.getName());
+        // 已有注册在进行中，忽略重复点击
+        if (isVerifying()) {
+            messageManager.sendMessage(player, "gui.registering", null);
+            return;
+        }
+
+        // 从会话取出玩家输入的真实密码（不是掩码）
+        // 取出后会话中的输入缓冲即被清空，这里的字符串只用于本次校验
+        String password = takePassword();
         if (password != null && !password.trim().isEmpty()) {
             // 直接尝试注册，不再调用handleInput
             attemptRegister(password.trim());
@@ -107,54 +116,86 @@ public class RegisterGUI extends AnvilGUI {
      * @param password 密码
      */
     private void attemptRegister(String password) {
-        // 检查玩家是否已注册
-        if (authMeManager.isPlayerRegistered(player)) {
-            messageManager.sendMessage(player, "gui.already-registered", null);
-            closeGUI();
-            return;
-        }
-
         // 验证密码格式
-        if (!authMeManager.isValidPasswordWithMessage(player, password)) {
+        if (!loginPluginManager.isValidPasswordWithMessage(player, password)) {
             return;
         }
 
-        // 关闭GUI（在注册前关闭，避免事件冲突）
-        closeGUI();
+        // 进入注册中状态，已注册检查、哈希和写库在工作线程中完成
+        beginVerifying();
 
-        // 注册玩家
-        if (authMeManager.registerPlayer(player, password)) {
-            // 立即将玩家添加到认证成功白名单，防止GUI重新打开
-            GuiOpenHelper.addToAuthenticatedList(player);
+        HashingExecutor hashingExecutor = plugin.getHashingExecutor();
+        loginPluginManager.registerAsync(player, password)
+            .whenCompleteAsync((result, error) -> {
+                if (!player.isOnline()) {
+                    return;
+                }
 
-            // 注册成功，自动登录玩家
-            boolean loginSuccess = authMeManager.forceLogin(player);
+                if (error != null && HashingExecutor.isRejected(error)) {
+                    // 队列已满或超出玩家/IP上限，提示玩家稍后再试
+                    endVerifying();
+                    messageManager.sendMessage(player, "gui.server-busy", null);
+                    return;
+                }
 
-            // 处理注册成功
-            authMeManager.handleRegisterSuccess(player);
+                if (result == LoginPluginManager.RegisterResult.ALREADY_REGISTERED) {
+                    loginPluginManager.markRegistered(player);
+                    messageManager.sendMessage(player, "gui.already-registered", null);
+                    // 账号已存在，改为打开登录界面
+                    leaveVerifying();
+                    plugin.getGuiManager().openLoginGUI(player);
+                    return;
+                }
 
-            if (loginSuccess) {
-                plugin.getLogger().info("玩家 " + player.getName() + " 注册并自动登录成功");
-            } else {
-                plugin.getLogger().warning("玩家 " + player.getName() + " 注册成功但自动登录失败");
-            }
+                if (error != null || result != LoginPluginManager.RegisterResult.SUCCESS) {
+                    // 注册失败
+                    loginPluginManager.handleFailure(player, "注册失败");
+                    endVerifying();
+                    return;
+                }
+
+                completeRegister();
+            }, hashingExecutor.mainThread());
+    }
+
+    /**
+     * 注册写库完成后在主线程完成自动登录
+     */
+    private void completeRegister() {
+        // 更新注册状态缓存
+        loginPluginManager.markRegistered(player);
+
+        // 关闭GUI（在登录前关闭，避免事件冲突）
+        closeGUI();
+
+        // 注册成功，自动登录玩家
+        boolean loginSuccess = loginPluginManager.forceLogin(player);
+
+        // 处理注册成功
+        loginPluginManager.handleRegisterSuccess(player);
+
+        if (loginSuccess) {
+            // 立即进入已认证状态，防止GUI重新打开
+            plugin.getAuthStateMachine().transition(player, AuthState.AUTHENTICATED);
+            plugin.getLogger().info("玩家 " + player.getName() + " 注册并自动登录成功");
         } else {
-            // 注册失败
-            authMeManager.handleFailure(player, "注册失败");
+            // 自动登录失败，改为打开登录界面
+            leaveVerifying();
+            plugin.getGuiManager().openLoginGUI(player);
+            plugin.getLogger().warning("玩家 " + player.getName() + " 注册成功但自动登录失败");
         }
     }
     
+    @Override
+    protected String getVerifyingMessageKey() {
+        return "gui.registering";
+    }
+
     /**
      * 获取取消按钮配置
      * @return 取消按钮配置
      */
     private MenuConfig.ItemConfig getCancelItem() {
-        for (MenuConfig.ItemConfig item : menuConfig.getItems().values()) {
-            Object slot = item.getSlot();
-            if (slot instanceof Integer && (Integer) slot == 0) {
-                return item;
-            }
-        }
-        return null;
+        return getItemConfigAt(0);
     }
 }
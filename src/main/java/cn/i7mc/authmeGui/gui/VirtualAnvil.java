@@ -0,0 +1,145 @@
+package cn.i7mc.authmeGui.gui;
+
+import cn.i7mc.authmeGui.config.MenuTemplate;
+import cn.i7mc.authmeGui.config.SlotLayout;
+import cn.i7mc.authmeGui.session.AuthSession;
+import com.github.retrooper.packetevents.PacketEvents;
+import com.github.retrooper.packetevents.manager.server.ServerVersion;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerCloseWindow;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerOpenWindow;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSetSlot;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWindowItems;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWindowProperty;
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据包级虚拟铁砧
+ * 直接向客户端发送打开界面、槽位和界面属性数据包，服务器端不存在任何容器，
+ * 因此不会创建Bukkit背包对象，也不会触发背包事件或受到登录插件的背包限制
+ *
+ * 客户端的重命名、点击和关闭数据包由AnvilInputListener读取后交给GUI处理
+ */
+public final class VirtualAnvil {
+
+    /**
+     * 虚拟铁砧的容器ID
+     * 原版服务器的容器ID在1~100之间循环，使用100以上的ID避免与真实容器冲突
+     */
+    public static final int WINDOW_ID = 110;
+
+    /** 铁砧的槽位数量 */
+    public static final int SIZE = 3;
+
+    /** 铁砧的修复花费属性 */
+    private static final int REPAIR_COST_PROPERTY = 0;
+
+    private VirtualAnvil() {
+    }
+
+    /**
+     * 获取铁砧界面的菜单类型ID（1.20.3新增了合成器菜单，之后的ID后移一位）
+     * @return 菜单类型ID
+     */
+    public static int getMenuType() {
+        try {
+            ServerVersion version = PacketEvents.getAPI().getServerManager().getVersion();
+            return version.isNewerThanOrEquals(ServerVersion.V_1_20_3) ? 8 : 7;
+        } catch (Exception e) {
+            return 7;
+        }
+    }
+
+    /**
+     * 向玩家打开虚拟铁砧（主线程调用）
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param gui 铁砧GUI
+     * @param title 标题（已转换颜色代码）
+     * @param slots 铁砧的三个槽位
+     */
+    public static void open(Player player, AuthSession session, AnvilGUI gui, String title, ItemStack[] slots) {
+        // 先标记正在查看，客户端随后发来的重命名和点击数据包才会被处理
+        session.setViewingGui(gui);
+
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player,
+            new WrapperPlayServerOpenWindow(WINDOW_ID, getMenuType(), LegacyComponentSerializer.legacySection().deserialize(title)));
+        session.setWindowId(WINDOW_ID);
+
+        sendContents(player, session, slots, gui.getMenuConfig().getTemplate().getPlayerLayout());
+
+        // 修复花费为0，客户端不显示"过于昂贵"
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player,
+            new WrapperPlayServerWindowProperty(WINDOW_ID, REPAIR_COST_PROPERTY, 0));
+    }
+
+    /**
+     * 发送虚拟铁砧的全部内容（三个铁砧槽位加玩家背包），用于打开和点击后的纠正
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param slots 铁砧的三个槽位
+     * @param playerLayout 菜单配置的玩家背包物品，配置了的槽位代替玩家真实的物品显示
+     */
+    public static void sendContents(Player player, AuthSession session, ItemStack[] slots, SlotLayout playerLayout) {
+        List<com.github.retrooper.packetevents.protocol.item.ItemStack> items = new ArrayList<>(SIZE + MenuTemplate.PLAYER_SLOTS);
+        for (int i = 0; i < SIZE; i++) {
+            items.add(convert(slots[i]));
+        }
+
+        // 容器中的玩家背包部分：主背包（9~35）在前，快捷栏（0~8）在后
+        PlayerInventory playerInventory = player.getInventory();
+        for (int slot = 0; slot < MenuTemplate.PLAYER_SLOTS; slot++) {
+            if (playerLayout.isOccupied(slot)) {
+                com.github.retrooper.packetevents.protocol.item.ItemStack item = playerLayout.getPacketItem(slot);
+                items.add(item != null ? item : convert(playerLayout.getItem(slot)));
+            } else {
+                items.add(convert(playerInventory.getItem(slot < 27 ? slot + 9 : slot - 27)));
+            }
+        }
+
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player,
+            new WrapperPlayServerWindowItems(WINDOW_ID, session.getStateId(), items, convert(null)));
+        session.setSentMaskLength(InputDisplayCache.countMask(slots[0]));
+    }
+
+    /**
+     * 更新虚拟铁砧的一个槽位
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param slot 槽位
+     * @param item 物品
+     */
+    public static void sendSlot(Player player, AuthSession session, int slot, ItemStack item) {
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player,
+            new WrapperPlayServerSetSlot(WINDOW_ID, session.getStateId(), slot, convert(item)));
+        if (slot == 0) {
+            session.setSentMaskLength(InputDisplayCache.countMask(item));
+        }
+    }
+
+    /**
+     * 关闭虚拟铁砧，并让服务器重新同步玩家背包（客户端关闭前可能拿起过物品）
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param gui 铁砧GUI
+     */
+    public static void close(Player player, AuthSession session, AnvilGUI gui) {
+        if (session != null) {
+            session.clearViewingGui(gui);
+        }
+
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player, new WrapperPlayServerCloseWindow(WINDOW_ID));
+        player.updateInventory();
+    }
+
+    private static com.github.retrooper.packetevents.protocol.item.ItemStack convert(ItemStack item) {
+        return SpigotConversionUtil.fromBukkitItemStack(item != null ? item : new ItemStack(Material.AIR));
+    }
+}
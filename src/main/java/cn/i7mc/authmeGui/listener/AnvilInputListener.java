@@ -1,124 +1,496 @@
 package cn.i7mc.authmeGui.listener;
 
 import cn.i7mc.authmeGui.AuthmeGui;
+import cn.i7mc.authmeGui.config.SlotLayout;
 import cn.i7mc.authmeGui.gui.AnvilGUI;
+import cn.i7mc.authmeGui.gui.InputDisplayCache;
+import cn.i7mc.authmeGui.gui.VirtualAnvil;
 import cn.i7mc.authmeGui.manager.MessageManager;
-import cn.i7mc.authmeGui.util.AnvilInputUtil;
+import cn.i7mc.authmeGui.session.AuthSession;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.session.InputRateLimiter;
+import cn.i7mc.authmeGui.session.RenderCoalescer;
+import cn.i7mc.authmeGui.util.TrafficMeter;
+import com.github.retrooper.packetevents.PacketEvents;
 import com.github.retrooper.packetevents.event.PacketListener;
 import com.github.retrooper.packetevents.event.PacketReceiveEvent;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.netty.buffer.ByteBufHelper;
 import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.protocol.packettype.PacketTypeCommon;
+import com.github.retrooper.packetevents.protocol.player.User;
+import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientClickWindow;
+import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientCloseWindow;
 import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientNameItem;
-import org.bukkit.Bukkit;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerOpenWindow;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSetSlot;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWindowItems;
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryHolder;
-import org.bukkit.plugin.Plugin;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
 
 /**
  * 铁砧输入监听器
  * 使用PacketEvents监听玩家在铁砧界面中的输入
+ * 输入在Netty线程写入玩家会话，界面刷新在主线程按tick合并执行
  */
 public class AnvilInputListener implements PacketListener {
     
+    private final AuthmeGui plugin;
     private final MessageManager messageManager;
+    private final RenderCoalescer renderCoalescer;
+
+    // 分别统计两种同步方式的出站流量，便于切换配置前后对比
+    private final TrafficMeter slotPacketMeter = new TrafficMeter();
+    private final TrafficMeter fullResyncMeter = new TrafficMeter();
     
-    public AnvilInputListener(MessageManager messageManager) {
+    public AnvilInputListener(AuthmeGui plugin, MessageManager messageManager) {
+        this.plugin = plugin;
         this.messageManager = messageManager;
+
+        // 同一玩家同一tick内的多次输入合并为一次刷新
+        this.renderCoalescer = new RenderCoalescer(this::render);
+        plugin.getTimingWheel().addTickHook(renderCoalescer::drain);
     }
     
     @Override
     public void onPacketReceive(PacketReceiveEvent event) {
+        // 只处理重命名、点击和关闭数据包
+        PacketTypeCommon packetType = event.getPacketType();
+        if (packetType != PacketType.Play.Client.NAME_ITEM
+                && packetType != PacketType.Play.Client.CLICK_WINDOW
+                && packetType != PacketType.Play.Client.CLOSE_WINDOW) {
+            return;
+        }
+
+        // 没有打开认证GUI的玩家只需一次哈希查找
+        if (!isViewingAuthGui(event.getUser())) {
+            return;
+        }
+
         Player player = (Player) event.getPlayer();
-        
-        // 只处理物品重命名数据包
-        if (event.getPacketType() == PacketType.Play.Client.NAME_ITEM) {
+        if (player == null) {
+            return;
+        }
+
+        if (packetType == PacketType.Play.Client.NAME_ITEM) {
             handleNameItem(player, event);
+        } else if (packetType == PacketType.Play.Client.CLICK_WINDOW) {
+            handleVirtualClick(player, event);
+        } else {
+            handleVirtualClose(player, event);
+        }
+    }
+
+    /**
+     * 检查数据包所属的玩家是否正在查看认证GUI
+     * @param user 数据包所属的用户
+     * @return 是否正在查看
+     */
+    private boolean isViewingAuthGui(User user) {
+        return user != null && user.getUUID() != null && plugin.getSessionRegistry().isViewing(user.getUUID());
+    }
+
+    /**
+     * 获取玩家正在查看的虚拟铁砧
+     * @param player 玩家
+     * @return 虚拟铁砧GUI，没有时返回null
+     */
+    private AnvilGUI getViewingVirtualGui(Player player) {
+        AuthSession session = plugin.getSessionRegistry().get(player.getUniqueId());
+        AnvilGUI anvilGUI = session != null ? session.getViewingGui() : null;
+        return anvilGUI != null && anvilGUI.isVirtual() ? anvilGUI : null;
+    }
+
+    /**
+     * 处理虚拟铁砧中的点击（服务器端没有对应的容器，数据包不再交给服务器）
+     * @param player 玩家
+     * @param event 数据包事件
+     */
+    private void handleVirtualClick(Player player, PacketReceiveEvent event) {
+        try {
+            AnvilGUI anvilGUI = getViewingVirtualGui(player);
+            if (anvilGUI == null) {
+                return;
+            }
+
+            WrapperPlayClientClickWindow packet = new WrapperPlayClientClickWindow(event);
+            if (packet.getWindowId() != VirtualAnvil.WINDOW_ID) {
+                return;
+            }
+
+            event.setCancelled(true);
+            int slot = packet.getSlot();
+            plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, () -> anvilGUI.handleVirtualClick(slot));
+        } catch (Exception e) {
+            // 忽略点击处理错误
+        }
+    }
+
+    /**
+     * 处理玩家关闭虚拟铁砧
+     * @param player 玩家
+     * @param event 数据包事件
+     */
+    private void handleVirtualClose(Player player, PacketReceiveEvent event) {
+        try {
+            AnvilGUI anvilGUI = getViewingVirtualGui(player);
+            if (anvilGUI == null) {
+                return;
+            }
+
+            WrapperPlayClientCloseWindow packet = new WrapperPlayClientCloseWindow(event);
+            if (packet.getWindowId() != VirtualAnvil.WINDOW_ID) {
+                return;
+            }
+
+            event.setCancelled(true);
+            plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, anvilGUI::handleVirtualClose);
+        } catch (Exception e) {
+            // 忽略关闭处理错误
+        }
+    }
+
+    @Override
+    public void onPacketSend(PacketSendEvent event) {
+        // 没有打开认证GUI的玩家只需一次哈希查找
+        User user = event.getUser();
+        if (!isViewingAuthGui(user)) {
+            return;
+        }
+
+        AuthSession session = plugin.getSessionRegistry().get(user.getUUID());
+        if (session == null) {
+            return;
+        }
+
+        try {
+            PacketTypeCommon packetType = event.getPacketType();
+            // 只统计认证GUI容器的数据包（打开、完整内容、单个槽位），区块、实体、聊天等不计入每次输入的流量
+            boolean containerPacket = false;
+            if (packetType == PacketType.Play.Server.OPEN_WINDOW) {
+                // 记录容器ID，定向槽位数据包需要它
+                int windowId = new WrapperPlayServerOpenWindow(event).getContainerId();
+                session.setWindowId(windowId);
+                containerPacket = true;
+
+                // 服务器打开了其他界面，客户端上的虚拟铁砧已被替换
+                AnvilGUI viewing = session.getViewingGui();
+                if (viewing != null && viewing.isVirtual() && windowId != VirtualAnvil.WINDOW_ID) {
+                    plugin.getTimingWheel().schedule(user.getUUID(), 1L, viewing::handleVirtualClose);
+                }
+            }
+
+            // 只在查看我们的GUI期间解析容器数据包和计数
+            if (session.getViewingGui() == null) {
+                return;
+            }
+
+            if (packetType == PacketType.Play.Server.WINDOW_ITEMS) {
+                WrapperPlayServerWindowItems windowItems = new WrapperPlayServerWindowItems(event);
+                if (windowItems.getWindowId() == session.getWindowId()) {
+                    session.setStateId(windowItems.getStateId());
+                    rewriteWindowItems(event, session, windowItems);
+                    containerPacket = true;
+                }
+            } else if (packetType == PacketType.Play.Server.SET_SLOT) {
+                WrapperPlayServerSetSlot setSlot = new WrapperPlayServerSetSlot(event);
+                if (setSlot.getWindowId() == session.getWindowId()) {
+                    session.setStateId(setSlot.getStateId());
+                    rewriteSetSlot(event, session, setSlot);
+                    currentMeter().recordSlotPacket();
+                    containerPacket = true;
+                }
+            }
+
+            if (!containerPacket) {
+                return;
+            }
+
+            int size = ByteBufHelper.readableBytes(event.getByteBuf());
+            currentMeter().recordOutbound(size);
+            TrafficMeter viewMeter = session.getViewMeter();
+            if (viewMeter != null) {
+                viewMeter.recordOutbound(size);
+            }
+        } catch (Exception e) {
+            // 忽略统计错误
         }
     }
     
     /**
-     * 处理物品重命名数据包
+     * 改写发往GUI容器的单个槽位数据包
+     * 掩码模式下服务器按重命名文本生成的结果物品带有明文名称，在发出前换成掩码物品，客户端不会看到明文；
+     * 菜单配置了玩家背包物品时，把玩家背包部分换成配置的物品（只显示，不修改玩家真实的背包）
+     * @param event 数据包事件
+     * @param session 玩家会话
+     * @param setSlot 槽位数据包
+     */
+    private void rewriteSetSlot(PacketSendEvent event, AuthSession session, WrapperPlayServerSetSlot setSlot) {
+        AnvilGUI anvilGUI = session.getViewingGui();
+        if (anvilGUI == null || anvilGUI.isVirtual()) {
+            return;
+        }
+
+        int slot = setSlot.getSlot();
+        int maskLength = getMaskLength(session);
+        com.github.retrooper.packetevents.protocol.item.ItemStack replacement = slot < anvilGUI.getSize()
+            ? getMaskedItem(slot, maskLength)
+            : getPlayerItem(anvilGUI.getMenuConfig().getTemplate().getPlayerLayout(), slot - anvilGUI.getSize());
+        if (slot == 0) {
+            session.setSentMaskLength(replacement != null ? maskLength : 0);
+        }
+        if (replacement != null && !replacement.equals(setSlot.getItem())) {
+            setSlot.setItem(replacement);
+            event.markForReEncode(true);
+        }
+    }
+
+    /**
+     * 改写完整容器数据包中的铁砧输入槽位、结果槽位和玩家背包物品
+     * @param event 数据包事件
+     * @param session 玩家会话
+     * @param windowItems 容器数据包
+     */
+    private void rewriteWindowItems(PacketSendEvent event, AuthSession session, WrapperPlayServerWindowItems windowItems) {
+        AnvilGUI anvilGUI = session.getViewingGui();
+        List<com.github.retrooper.packetevents.protocol.item.ItemStack> items = windowItems.getItems();
+        if (anvilGUI == null || anvilGUI.isVirtual() || items == null) {
+            return;
+        }
+
+        boolean changed = false;
+        int maskLength = getMaskLength(session);
+        for (int slot = 0; slot <= 2 && slot < items.size(); slot += 2) {
+            com.github.retrooper.packetevents.protocol.item.ItemStack masked = getMaskedItem(slot, maskLength);
+            if (slot == 0) {
+                session.setSentMaskLength(masked != null ? maskLength : 0);
+            }
+            if (masked != null && !masked.equals(items.get(slot))) {
+                items.set(slot, masked);
+                changed = true;
+            }
+        }
+
+        // 按编译好的放置计划覆盖玩家背包部分
+        SlotLayout playerLayout = anvilGUI.getMenuConfig().getTemplate().getPlayerLayout();
+        int offset = anvilGUI.getSize();
+        for (int i = 0; i < playerLayout.getPlacementCount(); i++) {
+            int slot = offset + playerLayout.getPlacementSlot(i);
+            if (slot >= items.size()) {
+                break;
+            }
+            items.set(slot, getPlayerItem(playerLayout, playerLayout.getPlacementSlot(i)));
+            changed = true;
+        }
+
+        if (changed) {
+            windowItems.setItems(items);
+            event.markForReEncode(true);
+        }
+    }
+
+    /**
+     * 获取玩家背包部分某个槽位配置的物品
+     * @param playerLayout 玩家背包物品布局
+     * @param slot 玩家背包部分的槽位（0~26背包，27~35快捷栏）
+     * @return 物品，没有配置时返回null
+     */
+    private com.github.retrooper.packetevents.protocol.item.ItemStack getPlayerItem(SlotLayout playerLayout, int slot) {
+        if (!playerLayout.isOccupied(slot)) {
+            return null;
+        }
+        com.github.retrooper.packetevents.protocol.item.ItemStack item = playerLayout.getPacketItem(slot);
+        return item != null ? item : SpigotConversionUtil.fromBukkitItemStack(playerLayout.getItem(slot));
+    }
+
+    /**
+     * 获取输入槽位应当显示的掩码长度
+     * 只在掩码模式、已有输入并且不在验证中时改写，其余情况保持服务器发出的物品
+     * @param session 玩家会话
+     * @return 掩码长度，不需要改写时返回0
+     */
+    private int getMaskLength(AuthSession session) {
+        if (plugin.getGuiManager().isPlaintextPasswordEnabled()
+                || plugin.getAuthStateMachine().isInState(session.getPlayer(), AuthState.VERIFYING)) {
+            return 0;
+        }
+        return session.getDisplayLength();
+    }
+
+    /**
+     * 获取某个槽位应当显示的掩码物品
+     * @param slot 槽位
+     * @param maskLength 掩码长度（getMaskLength）
+     * @return 掩码物品，不需要改写时返回null
+     */
+    private com.github.retrooper.packetevents.protocol.item.ItemStack getMaskedItem(int slot, int maskLength) {
+        if ((slot != 0 && slot != 2) || maskLength == 0) {
+            return null;
+        }
+
+        InputDisplayCache cache = plugin.getGuiManager().getInputDisplayCache();
+        com.github.retrooper.packetevents.protocol.item.ItemStack masked = slot == 0
+            ? cache.getInputPacketItem(maskLength) : cache.getResultPacketItem(true);
+        if (masked == null) {
+            masked = SpigotConversionUtil.fromBukkitItemStack(slot == 0
+                ? cache.getInputItem(maskLength) : cache.getResultItem(true));
+        }
+        return masked;
+    }
+
+    /**
+     * 处理物品重命名数据包（在Netty线程执行）
+     * 只读写会话中的并发状态，不访问任何Bukkit背包API，界面刷新合并后交给主线程
      * @param player 玩家
      * @param event 数据包事件
      */
     private void handleNameItem(Player player, PacketReceiveEvent event) {
         try {
-            // 检查玩家是否打开了我们的铁砧GUI
-            Inventory inventory = player.getOpenInventory().getTopInventory();
-            InventoryHolder inventoryHolder = inventory.getHolder();
-            
-            if (!(inventoryHolder instanceof AnvilGUI)) {
+            // 检查玩家是否正在查看我们的铁砧GUI（由主线程在背包打开/关闭时维护）
+            AuthSession session = plugin.getSessionRegistry().get(player.getUniqueId());
+            if (session == null) {
                 return;
             }
-            
-            AnvilGUI anvilGUI = (AnvilGUI) inventoryHolder;
-            
-            // 确认是当前玩家的GUI
-            if (!anvilGUI.getPlayer().equals(player)) {
+
+            AnvilGUI anvilGUI = session.getViewingGui();
+            if (anvilGUI == null) {
                 return;
             }
-            
+
+            // 虚拟铁砧在服务器端没有容器，重命名数据包不再交给服务器
+            if (anvilGUI.isVirtual()) {
+                event.setCancelled(true);
+            }
+
+            // 解析数据包之前先按令牌桶和数据包长度限流，超出的直接丢弃
+            InputRateLimiter rateLimiter = plugin.getGuiManager().getInputRateLimiter();
+            if (!rateLimiter.tryAdmit(session, ByteBufHelper.readableBytes(event.getByteBuf()))) {
+                event.setCancelled(true);
+                return;
+            }
+
             // 获取输入的文本
             WrapperPlayClientNameItem packet = new WrapperPlayClientNameItem(event);
             String inputText = packet.getItemName();
+            if (inputText == null) {
+                return;
+            }
 
-            if (inputText != null) {
-                // 移除空格并存储输入
-                String cleanInput = inputText.replace(" ", "");
-
-                // 过滤掉提示文本，只处理真实的用户输入
-                if (!isPlaceholderText(cleanInput)) {
-                    // 检查是否启用明文显示
-                    boolean showPlaintext = isPlaintextPasswordEnabled();
-
-                    // 特殊处理：如果是单个*字符且没有真实密码，强制清空（仅在掩码模式下）
-                    if (!showPlaintext && cleanInput.equals("*") && !AnvilInputUtil.hasInput(player.getName())) {
-                        AnvilInputUtil.forceRemovePlayerInput(player.getName());
-                        updateGUIDisplay(anvilGUI, "");
-                    } else {
-                        // 处理密码输入
-                        AnvilInputUtil.setPlayerInput(player.getName(), cleanInput);
-
-                        // 获取处理后的密码用于显示
-                        String displayPassword = AnvilInputUtil.getPlayerInput(player.getName());
-
-                        // 更新GUI显示
-                        updateGUIDisplay(anvilGUI, displayPassword);
-
-                        // 延迟刷新GUI以确保显示正确
-                        if (!showPlaintext) {
-                            // 掩码模式需要延迟刷新
-                            refreshGUIWithMask(anvilGUI, player, displayPassword);
-                        }
-                    }
-                } else {
-                    // 如果是提示文本，清空输入记录
-                    AnvilInputUtil.forceRemovePlayerInput(player.getName());
+            // 超过最大密码长度的输入不再处理
+            if (!rateLimiter.checkLength(session, inputText.length())) {
+                event.setCancelled(true);
+                return;
+            }
+
+            currentMeter().recordKeystroke();
+            TrafficMeter viewMeter = session.getViewMeter();
+            if (viewMeter != null) {
+                viewMeter.recordKeystroke();
+            }
 
-                    // 更新GUI显示
-                    updateGUIDisplay(anvilGUI, "");
+            // 移除空格并存储输入
+            String cleanInput = inputText.replace(" ", "");
+
+            // 过滤掉提示文本，只处理真实的用户输入
+            if (isPlaceholderText(cleanInput)) {
+                // 如果是提示文本，清空输入记录
+                session.clearInput();
+            } else {
+                // 检查是否启用明文显示
+                boolean showPlaintext = plugin.getGuiManager().isPlaintextPasswordEnabled();
+
+                // 特殊处理：如果是单个*字符且没有真实密码，强制清空（仅在掩码模式下）
+                if (!showPlaintext && cleanInput.equals(String.valueOf(InputDisplayCache.MASK_CHAR)) && !session.hasInput()) {
+                    session.clearInput();
+                } else {
+                    // 处理密码输入
+                    session.updateInput(cleanInput, showPlaintext);
                 }
             }
+
+            // 请求刷新界面，同一tick内的多次输入只刷新一次
+            renderCoalescer.request(session);
         } catch (Exception e) {
             // 忽略输入处理错误
         }
     }
-    
+
     /**
-     * 更新GUI显示
-     * @param anvilGUI 铁砧GUI
-     * @param input 输入文本
+     * 在主线程按会话中最新的输入刷新GUI显示（每个玩家每tick最多一次）
+     * @param session 玩家会话
      */
-    private void updateGUIDisplay(AnvilGUI anvilGUI, String input) {
+    private void render(AuthSession session) {
         try {
-            // 只更新结果槽位的物品显示，不触发handleInput避免循环刷新
-            updateResultSlot(anvilGUI, input);
+            AnvilGUI anvilGUI = session.getViewingGui();
+            if (anvilGUI == null) {
+                return;
+            }
+
+            Player player = anvilGUI.getPlayer();
+            if (!anvilGUI.isViewing()) {
+                return;
+            }
+
+            InputDisplayCache cache = plugin.getGuiManager().getInputDisplayCache();
+            int displayLength = session.getDisplayLength();
+            boolean hasInput = displayLength > 0;
+            boolean masked = !plugin.getGuiManager().isPlaintextPasswordEnabled();
 
-            // 不再自动调用handleInput，避免GUI循环刷新和提前验证
-            // anvilGUI.handleInput(input);
+            // 只更新结果槽位的物品显示，不触发handleInput避免循环刷新和提前验证
+            // 槽位物品都从输入显示缓存按长度取出，不再每次输入重新构建
+            anvilGUI.setSlot(2, cache.getResultItem(hasInput));
+
+            // 掩码模式下把输入槽位换成掩码
+            if (masked) {
+                anvilGUI.setSlot(0, cache.getInputItem(displayLength));
+            }
+
+            // 虚拟铁砧没有服务器端容器，只把变化的两个槽位发给客户端
+            // 服务器端背包的槽位已经写入，服务器每tick的容器同步只会发送变化的槽位，不再额外发送；
+            // 关闭定向同步时退回完整的背包同步（用于对比流量）
+            if (anvilGUI.isVirtual()) {
+                sendSlot(player, session, VirtualAnvil.WINDOW_ID, 2, cache.getResultPacketItem(hasInput), cache.getResultItem(hasInput));
+                if (masked) {
+                    sendSlot(player, session, VirtualAnvil.WINDOW_ID, 0, cache.getInputPacketItem(displayLength), cache.getInputItem(displayLength));
+                    session.setSentMaskLength(displayLength);
+                }
+            } else if (!plugin.getGuiManager().isSlotPacketsEnabled()) {
+                player.updateInventory();
+                currentMeter().recordFullResync();
+            }
         } catch (Exception e) {
-            // 忽略GUI更新错误
+            // 忽略刷新错误
+        }
+    }
+
+    /**
+     * 向玩家发送单个槽位的数据包
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param windowId 容器ID
+     * @param slot 槽位
+     * @param packetItem 缓存的数据包物品，缓存构建时未能转换则为null
+     * @param item 对应的Bukkit物品
+     */
+    private void sendSlot(Player player, AuthSession session, int windowId, int slot,
+                          com.github.retrooper.packetevents.protocol.item.ItemStack packetItem, ItemStack item) {
+        if (packetItem == null) {
+            packetItem = SpigotConversionUtil.fromBukkitItemStack(item);
         }
+
+        WrapperPlayServerSetSlot packet = new WrapperPlayServerSetSlot(windowId, session.getStateId(), slot, packetItem);
+        PacketEvents.getAPI().getPlayerManager().sendPacket(player, packet);
+    }
+
+    /**
+     * 获取当前同步方式对应的流量计数器
+     * @return 流量计数器
+     */
+    private TrafficMeter currentMeter() {
+        return plugin.getGuiManager().isSlotPacketsEnabled() ? slotPacketMeter : fullResyncMeter;
     }
 
     /**
@@ -142,7 +514,7 @@ public class AnvilInputListener implements PacketListener {
                cleanInput.equals("请输入密码");
 
         // 如果不是提示文本，但是是单个*号，也应该被处理为删除操作
-        if (!isPlaceholder && cleanInput.equals("*")) {
+        if (!isPlaceholder && cleanInput.equals(String.valueOf(InputDisplayCache.MASK_CHAR))) {
             // 这是删除到最后一个字符的情况，应该完全清空
             return true;
         }
@@ -151,107 +523,26 @@ public class AnvilInputListener implements PacketListener {
     }
 
     /**
-     * 刷新GUI以显示掩码密码
-     * @param anvilGUI 铁砧GUI
-     * @param player 玩家
-     * @param maskedPassword 掩码密码
+     * 获取界面刷新合并器
+     * @return 刷新合并器
      */
-    private void refreshGUIWithMask(AnvilGUI anvilGUI, Player player, String maskedPassword) {
-        try {
-            // 延迟更新输入槽位以显示掩码
-            org.bukkit.Bukkit.getScheduler().runTaskLater(
-                org.bukkit.Bukkit.getPluginManager().getPlugin("AuthmeGui"),
-                () -> {
-                    try {
-                        if (player.isOnline() && anvilGUI.getInventory().equals(player.getOpenInventory().getTopInventory())) {
-                            updateInputSlotWithMask(anvilGUI, maskedPassword);
-                        }
-                    } catch (Exception e) {
-                        // 忽略刷新错误
-                    }
-                }, 1L);
-        } catch (Exception e) {
-            // 忽略刷新错误
-        }
+    public RenderCoalescer getRenderCoalescer() {
+        return renderCoalescer;
     }
 
     /**
-     * 更新输入槽位显示掩码密码
-     * @param anvilGUI 铁砧GUI
-     * @param maskedPassword 掩码密码
+     * 获取定向槽位同步方式的流量计数器
+     * @return 流量计数器
      */
-    private void updateInputSlotWithMask(AnvilGUI anvilGUI, String maskedPassword) {
-        try {
-            Inventory inventory = anvilGUI.getInventory();
-            Player player = anvilGUI.getPlayer();
-
-            // 创建显示掩码密码的物品
-            org.bukkit.inventory.ItemStack inputItem = new org.bukkit.inventory.ItemStack(org.bukkit.Material.PAPER);
-            org.bukkit.inventory.meta.ItemMeta meta = inputItem.getItemMeta();
-            if (meta != null) {
-                // 显示掩码密码或提示文本
-                String displayText = (maskedPassword != null && !maskedPassword.trim().isEmpty()) ?
-                    maskedPassword : messageManager.getMessage("gui.password-placeholder", null);
-                meta.setDisplayName(org.bukkit.ChatColor.translateAlternateColorCodes('&', displayText));
-                inputItem.setItemMeta(meta);
-            }
-
-            // 设置到输入槽位（slot 0）
-            inventory.setItem(0, inputItem);
-
-            // 更新玩家的背包显示
-            player.updateInventory();
-        } catch (Exception e) {
-            // 忽略输入槽更新错误
-        }
+    public TrafficMeter getSlotPacketMeter() {
+        return slotPacketMeter;
     }
 
     /**
-     * 更新结果槽位的物品
-     * @param anvilGUI 铁砧GUI
-     * @param input 输入文本
+     * 获取完整背包同步方式的流量计数器
+     * @return 流量计数器
      */
-    private void updateResultSlot(AnvilGUI anvilGUI, String input) {
-        try {
-            Inventory inventory = anvilGUI.getInventory();
-            Player player = anvilGUI.getPlayer();
-
-            // 创建结果物品，显示输入的内容
-            org.bukkit.inventory.ItemStack resultItem = new org.bukkit.inventory.ItemStack(org.bukkit.Material.LIME_STAINED_GLASS_PANE);
-            org.bukkit.inventory.meta.ItemMeta meta = resultItem.getItemMeta();
-            if (meta != null) {
-                // 如果有输入，显示确认文本；否则显示提示
-                String displayText = (input != null && !input.trim().isEmpty()) ?
-                    "确认密码" : messageManager.getMessage("gui.password-placeholder", null);
-                meta.setDisplayName(org.bukkit.ChatColor.translateAlternateColorCodes('&', displayText));
-                resultItem.setItemMeta(meta);
-            }
-
-            // 设置到结果槽位（slot 2）
-            inventory.setItem(2, resultItem);
-
-            // 更新玩家的背包显示
-            player.updateInventory();
-        } catch (Exception e) {
-            // 忽略结果槽更新错误
-        }
-    }
-
-    /**
-     * 检查是否启用明文显示密码
-     * @return 是否启用明文显示
-     */
-    private boolean isPlaintextPasswordEnabled() {
-        try {
-            Plugin plugin = Bukkit.getPluginManager().getPlugin("AuthmeGui");
-            if (plugin instanceof AuthmeGui) {
-                AuthmeGui authmeGui = (AuthmeGui) plugin;
-                return authmeGui.getConfigManager().getMainConfig()
-                    .getBoolean("security.show-password-plaintext", false);
-            }
-        } catch (Exception e) {
-            // 如果获取配置失败，默认使用安全模式（隐藏密码）
-        }
-        return false;
+    public TrafficMeter getFullResyncMeter() {
+        return fullResyncMeter;
     }
 }
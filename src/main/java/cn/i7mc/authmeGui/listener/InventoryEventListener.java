@@ -4,6 +4,7 @@ import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.gui.AnvilGUI;
 import cn.i7mc.authmeGui.manager.GUIManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
+import cn.i7mc.authmeGui.session.AuthSession;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -14,6 +15,7 @@ import org.bukkit.event.inventory.InventoryOpenEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.inventory.PrepareAnvilEvent;
 import org.bukkit.inventory.AnvilInventory;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
@@ -46,14 +48,8 @@ public class InventoryEventListener implements Listener {
         Player player = (Player) event.getPlayer();
 
         // 检查是否是我们的GUI
-        if (!(event.getInventory().getHolder() instanceof AnvilGUI)) {
-            return;
-        }
-
-        AnvilGUI anvilGUI = (AnvilGUI) event.getInventory().getHolder();
-
-        // 确认是当前玩家的GUI
-        if (!anvilGUI.getPlayer().equals(player)) {
+        AnvilGUI anvilGUI = findGui(player, event.getInventory());
+        if (anvilGUI == null) {
             return;
         }
 
@@ -62,6 +58,10 @@ public class InventoryEventListener implements Listener {
             // 强制取消事件的取消状态，允许我们的GUI打开
             event.setCancelled(false);
         }
+
+        // 记录玩家正在查看的GUI，供数据包线程判断
+        AuthSession session = plugin.getSessionRegistry().getOrCreate(player);
+        session.setViewingGui(anvilGUI);
     }
 
     /**
@@ -76,14 +76,13 @@ public class InventoryEventListener implements Listener {
         Player player = (Player) event.getWhoClicked();
         
         // 检查是否是我们的GUI
-        if (!(event.getInventory().getHolder() instanceof AnvilGUI)) {
+        AnvilGUI anvilGUI = findGui(player, event.getInventory());
+        if (anvilGUI == null) {
             return;
         }
-        
-        AnvilGUI anvilGUI = (AnvilGUI) event.getInventory().getHolder();
-        
-        // 确认是当前玩家的GUI
-        if (!anvilGUI.getPlayer().equals(player)) {
+
+        // 玩家背包部分（可能显示着菜单配置的物品）只取消，不当作GUI按钮处理
+        if (event.getRawSlot() >= anvilGUI.getSize()) {
             event.setCancelled(true);
             return;
         }
@@ -105,15 +104,15 @@ public class InventoryEventListener implements Listener {
         Player player = (Player) event.getPlayer();
 
         // 检查是否是我们的GUI
-        if (!(event.getInventory().getHolder() instanceof AnvilGUI)) {
+        AnvilGUI anvilGUI = findGui(player, event.getInventory());
+        if (anvilGUI == null) {
             return;
         }
 
-        AnvilGUI anvilGUI = (AnvilGUI) event.getInventory().getHolder();
-
-        // 确认是当前玩家的GUI
-        if (!anvilGUI.getPlayer().equals(player)) {
-            return;
+        // 停止接收此GUI的输入
+        AuthSession session = plugin.getSessionRegistry().get(player);
+        if (session != null) {
+            session.clearViewingGui(anvilGUI);
         }
 
         // 处理GUI关闭事件（包括可能的重新打开）
@@ -132,16 +131,18 @@ public class InventoryEventListener implements Listener {
             return;
         }
         
+        if (!(event.getView().getPlayer() instanceof Player)) {
+            return;
+        }
+
         AnvilInventory anvilInventory = (AnvilInventory) event.getInventory();
         
         // 检查是否是我们的GUI
-        if (!(anvilInventory.getHolder() instanceof AnvilGUI)) {
+        AnvilGUI anvilGUI = findGui((Player) event.getView().getPlayer(), anvilInventory);
+        if (anvilGUI == null) {
             return;
         }
         
-        AnvilGUI anvilGUI = (AnvilGUI) anvilInventory.getHolder();
-        Player player = anvilGUI.getPlayer();
-        
         // 获取输入的文本
         String inputText = anvilInventory.getRenameText();
         if (inputText != null && !inputText.isEmpty()) {
@@ -160,4 +161,28 @@ public class InventoryEventListener implements Listener {
             }
         }
     }
+
+    /**
+     * 查找背包对应的认证GUI
+     * 只按对象身份与玩家会话中的GUI背包比较，不调用getHolder()，
+     * 其他插件和方块的背包不会因此创建方块状态快照
+     * @param player 玩家
+     * @param inventory 背包
+     * @return 认证GUI，不是我们的GUI时返回null
+     */
+    private AnvilGUI findGui(Player player, Inventory inventory) {
+        AuthSession session = plugin.getSessionRegistry().get(player.getUniqueId());
+        if (session == null) {
+            return null;
+        }
+
+        AnvilGUI anvilGUI = session.getViewingGui();
+        if (anvilGUI != null && anvilGUI.getInventory() == inventory) {
+            return anvilGUI;
+        }
+
+        // 打开事件发生在记录查看之前，此时按活跃GUI比较
+        anvilGUI = session.getActiveGui();
+        return anvilGUI != null && anvilGUI.getInventory() == inventory ? anvilGUI : null;
+    }
 }
@@ -1,52 +1,95 @@
 package cn.i7mc.authmeGui.listener;
 
 import cn.i7mc.authmeGui.AuthmeGui;
-import cn.i7mc.authmeGui.manager.AuthMeManager;
 import cn.i7mc.authmeGui.manager.GUIManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
-import cn.i7mc.authmeGui.util.GuiOpenHelper;
+import cn.i7mc.authmeGui.session.AuthState;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 /**
  * 玩家事件监听器
- * 处理玩家进入和离开服务器的事件
+ * 处理玩家进入和离开服务器的事件，驱动玩家认证状态机
  */
 public class PlayerEventListener implements Listener {
     
     private final AuthmeGui plugin;
     private final MessageManager messageManager;
-    private final AuthMeManager authMeManager;
     private final GUIManager guiManager;
     
     public PlayerEventListener(AuthmeGui plugin, MessageManager messageManager, 
-                              AuthMeManager authMeManager, GUIManager guiManager) {
+                              GUIManager guiManager) {
         this.plugin = plugin;
         this.messageManager = messageManager;
-        this.authMeManager = authMeManager;
         this.guiManager = guiManager;
     }
     
     /**
      * 处理玩家加入事件
-     * 注意：GUI的打开现在由AuthMe事件触发，而不是PlayerJoinEvent
+     * 玩家进入JOINED状态，延迟一次后开始认证流程
+     * 不再使用定时轮询，后续状态由登录插件事件和背包事件驱动
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
-        // 检查AuthMe是否可用
-        if (!authMeManager.isAuthMeEnabled()) {
+        plugin.getSessionRegistry().open(player);
+        plugin.getAuthStateMachine().onJoin(player);
+
+        // 检查是否启用GUI系统和自动打开
+        if (!guiManager.isGUIEnabled() || !guiManager.isAutoOpenEnabled()) {
+            return;
+        }
+
+        // 检查登录插件是否可用
+        if (!guiManager.isLoginPluginAvailable()) {
             messageManager.sendMessage(player, "authme.not-found", null);
             return;
         }
 
-        // 这里不再自动打开GUI，GUI的打开由AuthMe事件触发
-        // 只是记录玩家加入的调试信息
+        // 延迟开始认证流程，确保登录插件完全处理了玩家加入
+        plugin.getTimingWheel().schedule(player.getUniqueId(), guiManager.getOpenDelay(), () -> {
+            guiManager.startAuthentication(player);
+        });
+    }
+
+    /**
+     * 处理玩家执行命令事件
+     * 登录插件不提供登录事件时（CatSeedLogin），玩家可能直接用聊天命令登录或注册，
+     * 命令执行后检查登录状态，已登录时进入已认证状态并关闭GUI
+     * 登录插件可能自己处理并取消登录命令，所以被取消的命令也要检查
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        Player player = event.getPlayer();
+        LoginPluginManager loginPluginManager = guiManager.getLoginPluginManager();
+        if (loginPluginManager == null || loginPluginManager.hasCapability(LoginPluginManager.Capability.AUTH_EVENTS)
+                || !plugin.getAuthStateMachine().needsAuthentication(player)) {
+            return;
+        }
+
+        // 命令在本事件之后才执行，登录插件也可能稍后才完成登录，分两次检查
+        plugin.getTimingWheel().schedule(player.getUniqueId(), 1L, () -> guiManager.syncExternalLogin(player));
+        plugin.getTimingWheel().schedule(player.getUniqueId(), 20L, () -> guiManager.syncExternalLogin(player));
+    }
+
+    /**
+     * 处理玩家被踢出事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerKick(PlayerKickEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+
+        plugin.getAuthStateMachine().transition(event.getPlayer(), AuthState.KICKED);
     }
     
     /**
@@ -59,10 +102,13 @@ public class PlayerEventListener implements Listener {
         // 清理玩家的GUI
         guiManager.closeGUI(player);
 
-        // 清理玩家的白名单状态
-        GuiOpenHelper.removeFromOpeningList(player);
-        GuiOpenHelper.removeFromAuthenticatedList(player);
-    }
-    
+        // 清理玩家的注册状态缓存
+        if (guiManager.getLoginPluginManager() != null) {
+            guiManager.getLoginPluginManager().invalidateRegistration(player);
+        }
 
+        // 释放玩家的整个认证会话（输入缓冲、标记和全部延迟任务）
+        plugin.getSessionRegistry().remove(player);
+        plugin.getAuthStateMachine().remove(player);
+    }
 }
@@ -0,0 +1,52 @@
+package cn.i7mc.authmeGui.listener;
+
+import cn.i7mc.authmeGui.AuthmeGui;
+import cn.i7mc.authmeGui.manager.GUIManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+/**
+ * 预登录监听器
+ * 在AsyncPlayerPreLoginEvent的异步线程中预热玩家的注册状态，
+ * 玩家进入服务器时可以直接选择登录或注册GUI，不需要在主线程查询数据库
+ */
+public class PreLoginListener implements Listener {
+
+    private final AuthmeGui plugin;
+    private final GUIManager guiManager;
+    private final LoginPluginManager loginPluginManager;
+
+    public PreLoginListener(AuthmeGui plugin, GUIManager guiManager, LoginPluginManager loginPluginManager) {
+        this.plugin = plugin;
+        this.guiManager = guiManager;
+        this.loginPluginManager = loginPluginManager;
+    }
+
+    /**
+     * 处理异步预登录事件
+     * 使用MONITOR优先级，只为确定允许进入的玩家预热
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        if (!isWarmUpEnabled() || !guiManager.isGUIEnabled() || !guiManager.isLoginPluginAvailable()) {
+            return;
+        }
+
+        loginPluginManager.warmUp(event.getUniqueId(), event.getName());
+    }
+
+    /**
+     * 检查是否启用预登录预热
+     * @return 是否启用
+     */
+    private boolean isWarmUpEnabled() {
+        return plugin.getConfig().getBoolean("performance.prelogin-cache.enabled", true);
+    }
+}
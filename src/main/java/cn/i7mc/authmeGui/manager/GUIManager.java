@@ -4,33 +4,70 @@ import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.config.MenuConfig;
 import cn.i7mc.authmeGui.config.MenuConfigParser;
 import cn.i7mc.authmeGui.gui.AnvilGUI;
+import cn.i7mc.authmeGui.gui.GuiOpener;
+import cn.i7mc.authmeGui.gui.InputDisplayCache;
 import cn.i7mc.authmeGui.gui.LoginGUI;
 import cn.i7mc.authmeGui.gui.RegisterGUI;
+import cn.i7mc.authmeGui.session.AuthSession;
+import cn.i7mc.authmeGui.session.AuthSessionRegistry;
+import cn.i7mc.authmeGui.session.AuthState;
+import cn.i7mc.authmeGui.session.AuthStateMachine;
+import cn.i7mc.authmeGui.session.InputRateLimiter;
+import cn.i7mc.authmeGui.util.AdmissionQueue;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * GUI管理器抽象类
  * 统一管理所有GUI的创建、显示和销毁
  */
 public abstract class GUIManager {
+
+    // 注册状态查询被拒绝（查询队列已满）时的重试间隔（tick），每次翻倍直到上限
+    private static final long LOOKUP_RETRY_TICKS = 10L;
+    private static final long LOOKUP_RETRY_MAX_TICKS = 100L;
     
     protected final AuthmeGui plugin;
     protected final MessageManager messageManager;
-    protected final AuthMeManager authMeManager;
+    protected final LoginPluginManager loginPluginManager;
     protected final MenuConfigParser menuConfigParser;
-    protected final Map<UUID, AnvilGUI> activeGUIs;
+    protected final AuthSessionRegistry sessionRegistry;
+    protected final AdmissionQueue admissionQueue;
+    protected final InputRateLimiter inputRateLimiter;
+    protected volatile boolean plaintextPassword;
+    protected volatile boolean slotPackets;
+    protected volatile boolean virtualAnvil;
+    protected volatile InputDisplayCache inputDisplayCache;
+    protected final GuiOpener guiOpener;
+
+    // GUI只在主线程创建和复用
+    private long createdGUIs;
+    private long reusedGUIs;
     
     public GUIManager(AuthmeGui plugin, MessageManager messageManager, 
-                     AuthMeManager authMeManager, MenuConfigParser menuConfigParser) {
+                     LoginPluginManager loginPluginManager, MenuConfigParser menuConfigParser) {
         this.plugin = plugin;
         this.messageManager = messageManager;
-        this.authMeManager = authMeManager;
+        this.loginPluginManager = loginPluginManager;
         this.menuConfigParser = menuConfigParser;
-        this.activeGUIs = new HashMap<>();
+        this.sessionRegistry = plugin.getSessionRegistry();
+
+        // GUI打开准入队列，由时间轮每tick驱动
+        this.admissionQueue = new AdmissionQueue(getOpensPerTick());
+        plugin.getTimingWheel().addTickHook(admissionQueue::drain);
+
+        // 重命名数据包限流，刷数据包的玩家通过会话踢出
+        this.inputRateLimiter = new InputRateLimiter(this::kickForInputSpam);
+
+        // 启动时探测一次GUI打开方式，之后一直使用
+        this.guiOpener = new GuiOpener();
+
+        this.plaintextPassword = loadPlaintextPasswordSetting();
+        this.slotPackets = loadSlotPacketsSetting();
+        this.virtualAnvil = plugin.getConfig().getBoolean("gui.virtual-anvil", false);
+        loadInputSettings();
     }
     
     /**
@@ -43,27 +80,27 @@ public abstract class GUIManager {
      * @param player 玩家
      */
     public void openLoginGUI(Player player) {
+        if (!isLoginPluginAvailable()) {
+            return;
+        }
+
+        // 被踢出或正在校验密码的玩家不打开GUI
+        // 校验结束后由GUI自己先离开VERIFYING状态再重新打开，见AnvilGUI.endVerifying
+        if (plugin.getAuthStateMachine().isInState(player, AuthState.VERIFYING)
+                || !plugin.getAuthStateMachine().transition(player, AuthState.AWAITING_GUI)) {
+            return;
+        }
+
         // 检查玩家是否已经有活跃的GUI
         closeGUI(player);
         
-        MenuConfig loginConfig = menuConfigParser.getLoginMenuConfig();
-        if (loginConfig == null) {
+        if (menuConfigParser.getLoginMenuConfig() == null) {
             messageManager.sendMessage(player, "error.config-load-failed", null);
             return;
         }
-        
-        try {
-            LoginGUI loginGUI = new LoginGUI(plugin, messageManager, authMeManager, player, loginConfig);
-            activeGUIs.put(player.getUniqueId(), loginGUI);
-            
-            // 延迟打开GUI
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                loginGUI.openGUI();
-            }, getOpenDelay());
 
-        } catch (Exception e) {
-            messageManager.sendMessage(player, "error.gui-creation-failed", null);
-        }
+        // 延迟后进入准入队列，GUI在准入时才构建（或复用）并打开
+        scheduleOpen(player, false);
     }
     
     /**
@@ -71,56 +108,260 @@ public abstract class GUIManager {
      * @param player 玩家
      */
     public void openRegisterGUI(Player player) {
+        if (!isLoginPluginAvailable()) {
+            return;
+        }
+
+        // 被踢出或正在注册的玩家不打开GUI
+        // 写库结束后由GUI自己先离开VERIFYING状态再重新打开，见AnvilGUI.endVerifying
+        if (plugin.getAuthStateMachine().isInState(player, AuthState.VERIFYING)
+                || !plugin.getAuthStateMachine().transition(player, AuthState.AWAITING_GUI)) {
+            return;
+        }
+
         // 检查玩家是否已经有活跃的GUI
         closeGUI(player);
 
-        MenuConfig registerConfig = menuConfigParser.getRegisterMenuConfig();
-        if (registerConfig == null) {
+        if (menuConfigParser.getRegisterMenuConfig() == null) {
             messageManager.sendMessage(player, "error.config-load-failed", null);
             return;
         }
 
-        try {
-            RegisterGUI registerGUI = new RegisterGUI(plugin, messageManager, authMeManager, player, registerConfig);
-            activeGUIs.put(player.getUniqueId(), registerGUI);
+        // 延迟后进入准入队列，GUI在准入时才构建（或复用）并打开
+        scheduleOpen(player, true);
+    }
+
+    /**
+     * 登记打开请求，延迟后放入准入队列
+     * 构建（或复用）GUI、填充物品和打开都在准入时进行，受每tick名额限制
+     * @param player 玩家
+     * @param register 是否为注册GUI
+     */
+    private void scheduleOpen(Player player, boolean register) {
+        AuthSession session = sessionRegistry.getOrCreate(player);
+        int request = session.requestOpen();
+        plugin.getTimingWheel().schedule(player.getUniqueId(), getOpenDelay(), () -> admit(player, session, request, register));
+    }
+    
+    /**
+     * 获取要打开的GUI：会话中留有同类型、同一份菜单配置的GUI时重置后复用，否则创建新的GUI并留在会话中
+     * 复用时不再创建背包，只把槽位恢复为模板物品
+     * @param session 玩家会话
+     * @param type GUI类型
+     * @param menuConfig 当前的菜单配置
+     * @param factory 创建新GUI
+     * @return GUI
+     */
+    private <T extends AnvilGUI> T obtainGUI(AuthSession session, Class<T> type, MenuConfig menuConfig,
+                                             Supplier<T> factory) {
+        AnvilGUI retained = session.getRetainedGui();
+        if (type.isInstance(retained) && retained.canReuse(menuConfig, virtualAnvil)) {
+            retained.recycle();
+            reusedGUIs++;
+            return type.cast(retained);
+        }
 
-            // 延迟打开GUI
-            long delay = getOpenDelay();
+        T gui = factory.get();
+        session.setRetainedGui(gui);
+        createdGUIs++;
+        return gui;
+    }
+
+    /**
+     * 将打开请求放入准入队列，按每tick名额构建并打开GUI
+     * 出队时请求已被新的请求替换、已取消或玩家已离线则直接丢弃，不占用名额
+     * @param player 玩家
+     * @param session 玩家会话
+     * @param request 打开请求编号
+     * @param register 是否为注册GUI
+     */
+    private void admit(Player player, AuthSession session, int request, boolean register) {
+        admissionQueue.enqueue(player.getUniqueId(), plugin.getAuthStateMachine().getWaitingSince(player), () -> {
+            if (!player.isOnline() || session.isReleased() || !session.claimOpen(request)) {
+                return false;
+            }
 
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                registerGUI.openGUI();
-            }, delay);
+            // 使用准入时的菜单配置（等待期间可能已经重载）
+            MenuConfig menuConfig = register
+                ? menuConfigParser.getRegisterMenuConfig() : menuConfigParser.getLoginMenuConfig();
+            if (menuConfig == null) {
+                messageManager.sendMessage(player, "error.config-load-failed", null);
+                return false;
+            }
 
-        } catch (Exception e) {
-            messageManager.sendMessage(player, "error.gui-creation-failed", null);
-        }
+            try {
+                AnvilGUI gui = register
+                    ? obtainGUI(session, RegisterGUI.class, menuConfig,
+                        () -> new RegisterGUI(plugin, messageManager, loginPluginManager, player, menuConfig))
+                    : obtainGUI(session, LoginGUI.class, menuConfig,
+                        () -> new LoginGUI(plugin, messageManager, loginPluginManager, player, menuConfig));
+                session.setActiveGui(gui);
+                gui.openGUI();
+            } catch (Exception e) {
+                messageManager.sendMessage(player, "error.gui-creation-failed", null);
+            }
+            return true;
+        });
     }
-    
+
     /**
      * 为玩家打开适当的GUI（根据注册状态）
+     * 注册状态在工作线程中查询，查询完成后回到主线程打开GUI
      * @param player 玩家
      */
     public void openAppropriateGUI(Player player) {
+        if (!isLoginPluginAvailable()) {
+            messageManager.sendMessage(player, "authme.not-found", null);
+            return;
+        }
+
         // 检查玩家是否已经登录
-        if (authMeManager.isPlayerLoggedIn(player)) {
+        if (loginPluginManager.isPlayerLoggedIn(player)) {
             messageManager.sendMessage(player, "gui.already-logged-in", null);
             return;
         }
-        
+
         // 根据注册状态打开相应的GUI
-        if (authMeManager.isPlayerRegistered(player)) {
+        loginPluginManager.isRegisteredAsync(player).whenCompleteAsync((registered, error) -> {
+            // 查询期间玩家可能已离线或已登录
+            if (error != null || !player.isOnline() || loginPluginManager.isPlayerLoggedIn(player)) {
+                return;
+            }
+
+            if (Boolean.TRUE.equals(registered)) {
+                openLoginGUI(player);
+            } else {
+                openRegisterGUI(player);
+            }
+        }, plugin.getHashingExecutor().mainThread());
+    }
+
+    /**
+     * 开始玩家的认证流程（进服延迟后调用一次）
+     * 已登录的玩家直接进入已认证状态，否则根据注册状态打开登录或注册GUI
+     * @param player 玩家
+     */
+    public void startAuthentication(Player player) {
+        startAuthentication(player, LOOKUP_RETRY_TICKS);
+    }
+
+    /**
+     * 开始玩家的认证流程
+     * 异步查询失败时不在主线程同步查询数据库，而是通过时间轮退避重试，直到玩家离开JOINED状态
+     * @param player 玩家
+     * @param retryTicks 查询失败时下一次重试的延迟（tick）
+     */
+    private void startAuthentication(Player player, long retryTicks) {
+        if (!player.isOnline() || !isLoginPluginAvailable()) {
+            return;
+        }
+
+        // 等待期间玩家可能已经登录、被踢出或由其他途径打开了GUI
+        AuthStateMachine stateMachine = plugin.getAuthStateMachine();
+        if (!stateMachine.isInState(player, AuthState.JOINED)) {
+            return;
+        }
+
+        if (loginPluginManager.isPlayerLoggedIn(player)) {
+            stateMachine.transition(player, AuthState.AUTHENTICATED);
+            return;
+        }
+
+        // 预登录阶段已经缓存了注册状态时直接打开，不访问数据库
+        Boolean cachedRegistered = loginPluginManager.getCachedRegistration(player);
+        if (cachedRegistered != null) {
+            openForRegistrationState(player, cachedRegistered);
+            return;
+        }
+
+        loginPluginManager.isRegisteredAsync(player).whenCompleteAsync((registered, error) -> {
+            if (!player.isOnline() || !stateMachine.isInState(player, AuthState.JOINED)) {
+                return;
+            }
+
+            if (loginPluginManager.isPlayerLoggedIn(player)) {
+                stateMachine.transition(player, AuthState.AUTHENTICATED);
+                return;
+            }
+
+            // 异步查询失败（例如查询队列已满）时稍后重试，进服高峰不能在主线程访问数据库
+            if (error != null) {
+                plugin.getTimingWheel().schedule(player.getUniqueId(), retryTicks,
+                    () -> startAuthentication(player, Math.min(retryTicks * 2, LOOKUP_RETRY_MAX_TICKS)));
+                return;
+            }
+            openForRegistrationState(player, Boolean.TRUE.equals(registered));
+        }, plugin.getHashingExecutor().mainThread());
+    }
+
+    /**
+     * 检查玩家是否已通过登录插件自己的命令完成登录
+     * 用于不提供登录事件的登录插件（CatSeedLogin），由玩家执行命令后触发，已登录时进入已认证状态并关闭GUI
+     * @param player 玩家
+     */
+    public void syncExternalLogin(Player player) {
+        if (!player.isOnline() || !isLoginPluginAvailable()) {
+            return;
+        }
+
+        // 正在通过GUI校验的玩家由校验结果处理
+        AuthStateMachine stateMachine = plugin.getAuthStateMachine();
+        if (!stateMachine.needsAuthentication(player) || stateMachine.isInState(player, AuthState.VERIFYING)) {
+            return;
+        }
+
+        if (loginPluginManager.isPlayerLoggedIn(player)
+                && stateMachine.transition(player, AuthState.AUTHENTICATED)) {
+            closeGUI(player);
+        }
+    }
+
+    /**
+     * 根据注册状态打开登录或注册GUI并发送提示
+     * @param player 玩家
+     * @param isRegistered 是否已注册
+     */
+    private void openForRegistrationState(Player player, boolean isRegistered) {
+        if (isRegistered) {
+            // 玩家已注册但未登录，需要登录
             openLoginGUI(player);
+            messageManager.sendMessage(player, "gui.login-required",
+                messageManager.createPlaceholders("player", player.getName()));
         } else {
+            // 玩家未注册，需要注册
             openRegisterGUI(player);
+            messageManager.sendMessage(player, "gui.register-required",
+                messageManager.createPlaceholders("player", player.getName()));
         }
     }
+
+    /**
+     * 检查登录插件是否可用
+     * @return 是否可用
+     */
+    public boolean isLoginPluginAvailable() {
+        return loginPluginManager != null && loginPluginManager.isPluginEnabled();
+    }
+
+    /**
+     * 获取登录插件管理器
+     * @return 登录插件管理器
+     */
+    public LoginPluginManager getLoginPluginManager() {
+        return loginPluginManager;
+    }
     
     /**
      * 关闭玩家的GUI
      * @param player 玩家
      */
     public void closeGUI(Player player) {
-        AnvilGUI gui = activeGUIs.remove(player.getUniqueId());
+        admissionQueue.remove(player.getUniqueId());
+        AuthSession session = sessionRegistry.get(player);
+        if (session != null) {
+            session.cancelOpen();
+        }
+        AnvilGUI gui = session != null ? session.takeActiveGui() : null;
         if (gui != null) {
             gui.closeGUI();
         }
@@ -132,36 +373,162 @@ public abstract class GUIManager {
      * @return GUI对象，如果没有则返回null
      */
     public AnvilGUI getActiveGUI(Player player) {
-        return activeGUIs.get(player.getUniqueId());
+        AuthSession session = sessionRegistry.get(player);
+        return session != null ? session.getActiveGui() : null;
     }
     
     /**
-     * 检查玩家是否有活跃的GUI
+     * 检查玩家是否有活跃的GUI（包括已请求、正在排队等待构建和打开的GUI）
      * @param player 玩家
      * @return 是否有活跃的GUI
      */
     public boolean hasActiveGUI(Player player) {
-        return activeGUIs.containsKey(player.getUniqueId());
+        AuthSession session = sessionRegistry.get(player);
+        return session != null && (session.getActiveGui() != null || session.isOpenPending());
     }
     
     /**
      * 清理所有活跃的GUI
      */
     public void clearAllGUIs() {
-        for (AnvilGUI gui : activeGUIs.values()) {
-            gui.closeGUI();
+        admissionQueue.clear();
+        for (AuthSession session : sessionRegistry.getSessions()) {
+            session.cancelOpen();
+            AnvilGUI gui = session.takeActiveGui();
+            if (gui != null) {
+                gui.closeGUI();
+            }
+            // 重载后菜单配置会改变，不再复用旧的GUI
+            session.setRetainedGui(null);
         }
-        activeGUIs.clear();
     }
     
     /**
      * 获取GUI打开延迟
      * @return 延迟tick数
      */
-    protected long getOpenDelay() {
+    public long getOpenDelay() {
         return plugin.getConfig().getLong("gui.open-delay", 20L);
     }
     
+    /**
+     * 获取每tick最多打开的GUI数量
+     * @return 每tick名额（0表示不限制）
+     */
+    protected int getOpensPerTick() {
+        return plugin.getConfig().getInt("performance.admission.opens-per-tick", 5);
+    }
+
+    /**
+     * 检查是否启用明文显示密码（数据包线程可以安全调用，重载时刷新）
+     * @return 是否启用明文显示
+     */
+    public boolean isPlaintextPasswordEnabled() {
+        return plaintextPassword;
+    }
+
+    /**
+     * 从配置读取是否明文显示密码
+     * @return 是否启用明文显示
+     */
+    private boolean loadPlaintextPasswordSetting() {
+        try {
+            return plugin.getConfigManager().getMainConfig().getBoolean("security.show-password-plaintext", false);
+        } catch (Exception e) {
+            // 如果获取配置失败，默认使用安全模式（隐藏密码）
+            return false;
+        }
+    }
+
+    /**
+     * 检查输入刷新是否只发送定向槽位数据包（关闭时使用完整的背包重新同步）
+     * @return 是否发送定向槽位数据包
+     */
+    public boolean isSlotPacketsEnabled() {
+        return slotPackets;
+    }
+
+    /**
+     * 检查是否使用数据包级虚拟铁砧（不创建服务器端背包）
+     * @return 是否使用虚拟铁砧
+     */
+    public boolean isVirtualAnvilEnabled() {
+        return virtualAnvil;
+    }
+
+    /**
+     * 获取输入显示缓存（按密码长度预先构建的掩码和槽位物品）
+     * @return 输入显示缓存
+     */
+    public InputDisplayCache getInputDisplayCache() {
+        return inputDisplayCache;
+    }
+
+    /**
+     * 获取GUI打开策略
+     * @return 打开策略
+     */
+    public GuiOpener getGuiOpener() {
+        return guiOpener;
+    }
+
+    /**
+     * 获取重命名数据包限流器
+     * @return 限流器
+     */
+    public InputRateLimiter getInputRateLimiter() {
+        return inputRateLimiter;
+    }
+
+    /**
+     * 按当前的最大密码长度构建输入显示缓存，设置新会话的密码缓冲容量和输入限流参数
+     */
+    private void loadInputSettings() {
+        FileConfiguration mainConfig = plugin.getConfigManager().getMainConfig();
+        int maxLength = mainConfig.getInt("security.max-password-length", 20);
+        inputDisplayCache = new InputDisplayCache(maxLength, messageManager.getMessage("gui.password-placeholder", null));
+
+        // 超长的输入在数据包层面就被丢弃，缓冲不需要更大的容量；调大上限时已有会话的缓冲一起扩容
+        sessionRegistry.setPasswordCapacity(maxLength);
+
+        inputRateLimiter.configure(
+            mainConfig.getInt("security.input-limit.packets-per-second", 30),
+            mainConfig.getInt("security.input-limit.burst", 20),
+            maxLength,
+            mainConfig.getInt("security.input-limit.kick-threshold", 200));
+    }
+
+    /**
+     * 踢出刷重命名数据包的玩家（数据包线程调用，踢出在主线程执行）
+     * 玩家退出后会话按正常流程释放
+     * @param session 玩家会话
+     */
+    private void kickForInputSpam(AuthSession session) {
+        Player player = session.getPlayer();
+        plugin.getTimingWheel().schedule(session.getUuid(), 1L, () -> {
+            if (player.isOnline()) {
+                plugin.getLogger().warning("玩家 " + player.getName() + " 发送重命名数据包过于频繁，已踢出");
+                player.kickPlayer(messageManager.getMessage("gui.kicked-for-spam", null));
+            }
+        });
+    }
+
+    /**
+     * 从配置读取输入刷新方式
+     * @return 是否发送定向槽位数据包
+     */
+    private boolean loadSlotPacketsSetting() {
+        return plugin.getConfig().getBoolean("performance.render.slot-packets", true);
+    }
+
+    /**
+     * 获取GUI打开准入队列
+     * @return 准入队列
+     */
+    public AdmissionQueue getAdmissionQueue() {
+        return admissionQueue;
+    }
+
     /**
      * 检查是否启用GUI系统
      * @return 是否启用
@@ -183,7 +550,29 @@ public abstract class GUIManager {
      * @return 活跃GUI数量
      */
     public int getActiveGUICount() {
-        return activeGUIs.size();
+        int count = 0;
+        for (AuthSession session : sessionRegistry.getSessions()) {
+            if (session.getActiveGui() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取新创建的GUI数量
+     * @return 数量
+     */
+    public long getCreatedGUICount() {
+        return createdGUIs;
+    }
+
+    /**
+     * 获取重开时复用的GUI数量
+     * @return 数量
+     */
+    public long getReusedGUICount() {
+        return reusedGUIs;
     }
 
     /**
@@ -192,6 +581,11 @@ public abstract class GUIManager {
     public void reload() {
         // 清理所有活跃的GUI
         clearAllGUIs();
+        admissionQueue.setOpensPerTick(getOpensPerTick());
+        plaintextPassword = loadPlaintextPasswordSetting();
+        slotPackets = loadSlotPacketsSetting();
+        virtualAnvil = plugin.getConfig().getBoolean("gui.virtual-anvil", false);
+        loadInputSettings();
 
         // 重载菜单配置
         menuConfigParser.reloadMenuConfigs();
@@ -1,23 +1,68 @@
 package cn.i7mc.authmeGui.manager;
 
 import cn.i7mc.authmeGui.AuthmeGui;
+import cn.i7mc.authmeGui.util.RegisteredNameIndex;
+import cn.i7mc.authmeGui.util.RegistrationCache;
 import org.bukkit.entity.Player;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 登录插件管理器抽象类
  * 统一处理所有登录插件的交互接口
+ *
+ * GUI和监听器只通过此类访问登录插件：
+ * - 注册状态查询、密码校验、注册写库都提供返回CompletableFuture的异步方法，在哈希线程池中执行
+ * - 强制登录、成功/失败处理等需要操作玩家的方法必须在主线程调用
+ * - 各适配器通过能力标记声明登录插件的特性
+ * - 注册状态可以在预登录阶段预热到按UUID索引的缓存中，进服后直接读取
+ * - 可选在启动时把所有已注册名称加载到内存索引，注册状态查询不再访问数据库
  */
 public abstract class LoginPluginManager {
+
+    /**
+     * 登录插件能力标记
+     */
+    public enum Capability {
+        /**
+         * 注册状态查询可以在异步线程中执行
+         */
+        ASYNC_LOOKUP,
+        /**
+         * 注册状态查询只读取内存缓存，可以直接在主线程调用
+         */
+        IN_MEMORY_LOOKUP,
+        /**
+         * 登录插件会触发自己的登录/注册事件
+         */
+        AUTH_EVENTS
+    }
+
+    /**
+     * 注册结果
+     */
+    public enum RegisterResult {
+        SUCCESS,
+        ALREADY_REGISTERED,
+        FAILED
+    }
     
     protected final AuthmeGui plugin;
     protected final MessageManager messageManager;
     protected final ConfigManager configManager;
+    protected final RegistrationCache registrationCache;
+    protected volatile RegisteredNameIndex registeredNameIndex;
     protected boolean pluginEnabled;
     
     public LoginPluginManager(AuthmeGui plugin, MessageManager messageManager, ConfigManager configManager) {
         this.plugin = plugin;
         this.messageManager = messageManager;
         this.configManager = configManager;
+        this.registrationCache = new RegistrationCache(
+            configManager.getMainConfig().getLong("performance.prelogin-cache.ttl-seconds", 60L));
         this.pluginEnabled = false;
     }
     
@@ -32,6 +77,21 @@ public abstract class LoginPluginManager {
      */
     public abstract String getPluginType();
     
+    /**
+     * 获取登录插件支持的能力
+     * @return 能力集合
+     */
+    public abstract Set<Capability> getCapabilities();
+
+    /**
+     * 检查登录插件是否支持指定能力
+     * @param capability 能力
+     * @return 是否支持
+     */
+    public boolean hasCapability(Capability capability) {
+        return getCapabilities().contains(capability);
+    }
+    
     /**
      * 检查登录插件是否可用
      * @return 是否可用
@@ -46,6 +106,101 @@ public abstract class LoginPluginManager {
      * @return 是否已注册
      */
     public abstract boolean isPlayerRegistered(Player player);
+
+    /**
+     * 按名称检查玩家是否已注册（可能访问数据库，不要在主线程调用）
+     * @param playerName 玩家名称
+     * @return 是否已注册
+     */
+    public abstract boolean isNameRegistered(String playerName);
+
+    /**
+     * 加载登录插件的账号记录，用于预热缓存
+     * @param playerName 玩家名称
+     * @return 账号记录，登录插件不提供或账号不存在时返回null
+     */
+    protected Object loadAccountRecord(String playerName) {
+        return null;
+    }
+
+    /**
+     * 读取所有已注册的玩家名称，用于构建名称索引（在异步线程中调用）
+     * @return 名称集合，登录插件不支持时返回null
+     */
+    protected Collection<String> loadAllRegisteredNames() {
+        return null;
+    }
+
+    /**
+     * 在异步线程中加载已注册名称索引
+     * 索引在加载开始前就会接收新的注册，加载完成后才用于查询
+     */
+    public void loadNameIndex() {
+        if (!isPluginEnabled()) {
+            return;
+        }
+
+        // 登录插件本身就在内存中查询注册状态，索引没有意义
+        if (hasCapability(Capability.IN_MEMORY_LOOKUP)) {
+            plugin.getLogger().info("登录插件 " + getPluginType() + " 已在内存中查询注册状态，不加载名称索引");
+            return;
+        }
+
+        RegisteredNameIndex index = new RegisteredNameIndex(0);
+        registeredNameIndex = index;
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.nanoTime();
+            try {
+                Collection<String> names = loadAllRegisteredNames();
+                if (names == null) {
+                    registeredNameIndex = null;
+                    plugin.getLogger().warning("登录插件 " + getPluginType() + " 不支持批量读取账号，名称索引已禁用");
+                    return;
+                }
+
+                index.ensureCapacity(names.size());
+                for (String name : names) {
+                    if (name != null) {
+                        index.addLoaded(name);
+                    }
+                }
+
+                long elapsed = (System.nanoTime() - start) / 1_000_000L;
+                index.markReady(elapsed);
+                plugin.getLogger().info("已注册名称索引加载完成: " + index.size() + " 个账号, 耗时 " + elapsed + "ms");
+            } catch (Exception e) {
+                registeredNameIndex = null;
+                plugin.getLogger().warning("已注册名称索引加载失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 检查名称索引是否确认玩家已注册
+     * 索引只接收经过注册事件的注册，查询不到不代表未注册，调用方需要再询问登录插件
+     * @param playerName 玩家名称
+     * @return 索引中存在该名称时返回true，否则（包括索引未启用或未加载完成）返回false
+     */
+    protected boolean isIndexedAsRegistered(String playerName) {
+        RegisteredNameIndex index = registeredNameIndex;
+        return index != null && index.isReady() && index.contains(playerName);
+    }
+
+    /**
+     * 直接向登录插件查询玩家是否已注册，不使用名称索引（可能访问数据库，不要在主线程调用）
+     * @param playerName 玩家名称
+     * @return 是否已注册
+     */
+    protected abstract boolean isRegisteredInBackend(String playerName);
+
+    /**
+     * 获取已注册名称索引
+     * @return 名称索引，未启用时返回null
+     */
+    public RegisteredNameIndex getRegisteredNameIndex() {
+        return registeredNameIndex;
+    }
     
     /**
      * 检查玩家是否已登录
@@ -76,6 +231,158 @@ public abstract class LoginPluginManager {
      * @return 是否正确
      */
     public abstract boolean checkPassword(Player player, String password);
+
+    /**
+     * 异步检查玩家是否已注册
+     * 内存查询直接返回结果，其他情况在工作线程中查询
+     * @param player 玩家
+     * @return 是否已注册
+     */
+    public CompletableFuture<Boolean> isRegisteredAsync(Player player) {
+        if (!isPluginEnabled()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        Boolean cached = getCachedRegistration(player);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // 名称索引只用于确认已注册，查不到时仍然询问登录插件
+        if (isIndexedAsRegistered(player.getName())) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        if (hasCapability(Capability.IN_MEMORY_LOOKUP)) {
+            return CompletableFuture.completedFuture(isPlayerRegistered(player));
+        }
+
+        return plugin.getHashingExecutor().supplyAsync(() -> isPlayerRegistered(player));
+    }
+
+    /**
+     * 预热玩家的注册状态
+     * 在AsyncPlayerPreLoginEvent的异步线程中调用，直接在调用线程查询
+     * @param uuid 玩家UUID
+     * @param playerName 玩家名称
+     */
+    public void warmUp(UUID uuid, String playerName) {
+        if (!isPluginEnabled()) {
+            return;
+        }
+
+        try {
+            Object accountRecord = loadAccountRecord(playerName);
+            boolean registered = accountRecord != null || isNameRegistered(playerName);
+            registrationCache.put(uuid, playerName, registered, accountRecord);
+        } catch (Exception e) {
+            // 查询失败时不写入缓存，进服后走异步查询
+        }
+    }
+
+    /**
+     * 获取预热缓存中的注册状态
+     * @param player 玩家
+     * @return 是否已注册，缓存中没有时返回null
+     */
+    public Boolean getCachedRegistration(Player player) {
+        RegistrationCache.Entry entry = registrationCache.get(player.getUniqueId());
+        if (entry == null || !entry.getPlayerName().equalsIgnoreCase(player.getName())) {
+            return null;
+        }
+        return entry.isRegistered();
+    }
+
+    /**
+     * 获取预热缓存中的账号记录
+     * @param player 玩家
+     * @return 账号记录，缓存中没有时返回null
+     */
+    protected Object getCachedAccountRecord(Player player) {
+        RegistrationCache.Entry entry = registrationCache.get(player.getUniqueId());
+        if (entry == null || !entry.getPlayerName().equalsIgnoreCase(player.getName())) {
+            return null;
+        }
+        return entry.getAccountRecord();
+    }
+
+    /**
+     * 标记玩家已注册（注册成功后调用）
+     * @param player 玩家
+     */
+    public void markRegistered(Player player) {
+        registrationCache.put(player.getUniqueId(), player.getName(), true, null);
+
+        RegisteredNameIndex index = registeredNameIndex;
+        if (index != null) {
+            index.add(player.getName());
+        }
+    }
+
+    /**
+     * 标记账号已被注销（注销事件中调用，玩家可能不在线）
+     * @param playerName 玩家名称
+     */
+    public void markUnregistered(String playerName) {
+        registrationCache.invalidate(playerName);
+
+        RegisteredNameIndex index = registeredNameIndex;
+        if (index != null) {
+            index.remove(playerName);
+        }
+    }
+
+    /**
+     * 移除玩家的注册状态缓存（退出或注销账号时调用）
+     * @param player 玩家
+     */
+    public void invalidateRegistration(Player player) {
+        registrationCache.invalidate(player.getUniqueId());
+    }
+
+    /**
+     * 获取注册状态缓存
+     * @return 注册状态缓存
+     */
+    public RegistrationCache getRegistrationCache() {
+        return registrationCache;
+    }
+
+    /**
+     * 在哈希线程池中注册玩家
+     * 已注册检查和注册写库在同一个任务中完成，后端只访问一次
+     * @param player 玩家
+     * @param password 密码
+     * @return 注册结果
+     */
+    public CompletableFuture<RegisterResult> registerAsync(Player player, String password) {
+        if (!isPluginEnabled()) {
+            return CompletableFuture.completedFuture(RegisterResult.FAILED);
+        }
+
+        return plugin.getHashingExecutor().submit(player, () -> {
+            // 写库前直接询问登录插件，索引查不到的名称也可能已经注册
+            if (isRegisteredInBackend(player.getName())) {
+                return RegisterResult.ALREADY_REGISTERED;
+            }
+            return registerPlayer(player, password) ? RegisterResult.SUCCESS : RegisterResult.FAILED;
+        });
+    }
+
+    /**
+     * 在哈希线程池中检查密码
+     * 未注册的玩家校验结果为false
+     * @param player 玩家
+     * @param password 密码
+     * @return 是否正确
+     */
+    public CompletableFuture<Boolean> checkPasswordAsync(Player player, String password) {
+        if (!isPluginEnabled()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return plugin.getHashingExecutor().submit(player, () -> checkPassword(player, password));
+    }
     
     /**
      * 验证密码格式
@@ -8,6 +8,10 @@ import fr.xephi.authme.api.v3.AuthMeApi;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * AuthMe登录插件适配器
  */
@@ -30,6 +34,12 @@ public class AuthMeLoginAdapter extends LoginPluginManager {
     public String getPluginType() {
         return "authme";
     }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        // AuthMe的API是线程安全的，查询会访问数据库
+        return EnumSet.of(Capability.ASYNC_LOOKUP, Capability.AUTH_EVENTS);
+    }
     
     /**
      * 检查并连接AuthMe插件
@@ -60,12 +70,36 @@ public class AuthMeLoginAdapter extends LoginPluginManager {
             return false;
         }
         
+        // 索引只能确认已注册，查不到时再询问AuthMe
+        return isIndexedAsRegistered(player.getName()) || isRegisteredInBackend(player.getName());
+    }
+    
+    @Override
+    public boolean isNameRegistered(String playerName) {
+        if (!isPluginEnabled()) {
+            return false;
+        }
+
+        return isIndexedAsRegistered(playerName) || isRegisteredInBackend(playerName);
+    }
+
+    @Override
+    protected boolean isRegisteredInBackend(String playerName) {
+        if (!isPluginEnabled()) {
+            return false;
+        }
+
         try {
-            return authMeApi.isRegistered(player.getName());
+            return authMeApi.isRegistered(playerName);
         } catch (Exception e) {
             return false;
         }
     }
+
+    @Override
+    protected Collection<String> loadAllRegisteredNames() {
+        return authMeApi.getRegisteredNames();
+    }
     
     @Override
     public boolean isPlayerLoggedIn(Player player) {
@@ -101,8 +135,7 @@ public class AuthMeLoginAdapter extends LoginPluginManager {
         }
 
         try {
-            authMeApi.registerPlayer(player.getName(), password);
-            return true;
+            return authMeApi.registerPlayer(player.getName(), password);
         } catch (Exception e) {
             return false;
         }
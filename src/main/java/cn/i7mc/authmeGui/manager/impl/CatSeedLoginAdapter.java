@@ -12,6 +12,10 @@ import cn.i7mc.authmeGui.manager.MessageManager;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * CatSeedLogin登录插件适配器
  */
@@ -34,6 +38,12 @@ public class CatSeedLoginAdapter extends LoginPluginManager {
     public String getPluginType() {
         return "catseedlogin";
     }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        // CatSeedLogin启动时把所有账号加载到内存缓存
+        return EnumSet.of(Capability.ASYNC_LOOKUP, Capability.IN_MEMORY_LOOKUP);
+    }
     
     /**
      * 检查并连接CatSeedLogin插件
@@ -64,12 +74,44 @@ public class CatSeedLoginAdapter extends LoginPluginManager {
             return false;
         }
         
+        return isRegisteredInBackend(player.getName());
+    }
+    
+    @Override
+    public boolean isNameRegistered(String playerName) {
+        if (!isPluginEnabled()) {
+            return false;
+        }
+
+        return isRegisteredInBackend(playerName);
+    }
+
+    @Override
+    protected boolean isRegisteredInBackend(String playerName) {
+        if (!isPluginEnabled()) {
+            return false;
+        }
+
+        // CatSeedLogin的账号缓存在内存中，不使用名称索引
         try {
-            return CatSeedLoginAPI.isRegister(player.getName());
+            return CatSeedLoginAPI.isRegister(playerName);
         } catch (Exception e) {
             return false;
         }
     }
+
+    @Override
+    protected Object loadAccountRecord(String playerName) {
+        if (!isPluginEnabled()) {
+            return null;
+        }
+
+        try {
+            return Cache.getIgnoreCase(playerName);
+        } catch (Exception e) {
+            return null;
+        }
+    }
     
     @Override
     public boolean isPlayerLoggedIn(Player player) {
@@ -91,7 +133,10 @@ public class CatSeedLoginAdapter extends LoginPluginManager {
         }
         
         try {
-            LoginPlayer loginPlayer = Cache.getIgnoreCase(player.getName());
+            // 优先使用预登录阶段缓存的账号记录
+            Object cached = getCachedAccountRecord(player);
+            LoginPlayer loginPlayer = cached instanceof LoginPlayer
+                ? (LoginPlayer) cached : Cache.getIgnoreCase(player.getName());
             if (loginPlayer != null) {
                 LoginPlayerHelper.add(loginPlayer);
                 LoginPlayerHelper.recordCurrentIP(player, loginPlayer);
@@ -110,12 +155,49 @@ public class CatSeedLoginAdapter extends LoginPluginManager {
         }
 
         try {
-            String playerName = player.getName();
+            return register(player.getName(), player.getAddress().getAddress().getHostAddress(), password);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<RegisterResult> registerAsync(Player player, String password) {
+        if (!isPluginEnabled()) {
+            return CompletableFuture.completedFuture(RegisterResult.FAILED);
+        }
+
+        // 在调用线程读取玩家信息，工作线程只做加密和写库
+        String playerName = player.getName();
+        String ip;
+        try {
+            ip = player.getAddress().getAddress().getHostAddress();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(RegisterResult.FAILED);
+        }
+
+        return plugin.getHashingExecutor().submit(player, () -> {
+            if (Cache.getIgnoreCase(playerName) != null) {
+                return RegisterResult.ALREADY_REGISTERED;
+            }
+            return register(playerName, ip, password) ? RegisterResult.SUCCESS : RegisterResult.FAILED;
+        });
+    }
+
+    /**
+     * 加密密码并写入CatSeedLogin数据库
+     * @param playerName 玩家名称
+     * @param ip 玩家IP
+     * @param password 密码
+     * @return 是否成功
+     */
+    private boolean register(String playerName, String ip, String password) {
+        try {
             String hashedPassword = cc.baka9.catseedlogin.util.Crypt.encrypt(playerName, password);
             
             LoginPlayer loginPlayer = new LoginPlayer(playerName, hashedPassword);
             loginPlayer.setEmail("");
-            loginPlayer.setIps(player.getAddress().getAddress().getHostAddress());
+            loginPlayer.setIps(ip);
             loginPlayer.setLastAction(System.currentTimeMillis());
             
             CatSeedLogin.sql.add(loginPlayer);
@@ -2,8 +2,8 @@ package cn.i7mc.authmeGui.manager.impl;
 
 import cn.i7mc.authmeGui.AuthmeGui;
 import cn.i7mc.authmeGui.config.MenuConfigParser;
-import cn.i7mc.authmeGui.manager.AuthMeManager;
 import cn.i7mc.authmeGui.manager.GUIManager;
+import cn.i7mc.authmeGui.manager.LoginPluginManager;
 import cn.i7mc.authmeGui.manager.MessageManager;
 
 /**
@@ -12,8 +12,8 @@ import cn.i7mc.authmeGui.manager.MessageManager;
 public class GUIManagerImpl extends GUIManager {
     
     public GUIManagerImpl(AuthmeGui plugin, MessageManager messageManager, 
-                         AuthMeManager authMeManager, MenuConfigParser menuConfigParser) {
-        super(plugin, messageManager, authMeManager, menuConfigParser);
+                         LoginPluginManager loginPluginManager, MenuConfigParser menuConfigParser) {
+        super(plugin, messageManager, loginPluginManager, menuConfigParser);
     }
     
     @Override
@@ -24,7 +24,7 @@ public class GUIManagerImpl extends GUIManager {
             return;
         }
         
-        if (!authMeManager.isAuthMeEnabled()) {
+        if (!isLoginPluginAvailable()) {
         }
     }
 }
@@ -0,0 +1,382 @@
+package cn.i7mc.authmeGui.session;
+
+import cn.i7mc.authmeGui.gui.AnvilGUI;
+import cn.i7mc.authmeGui.gui.InputDisplayCache;
+import cn.i7mc.authmeGui.util.TokenBucket;
+import cn.i7mc.authmeGui.util.TrafficMeter;
+import org.bukkit.entity.Player;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 玩家认证会话
+ * 一个玩家在认证过程中的全部状态都放在这里：密码输入缓冲、GUI打开标记、当前活跃的GUI和留待重开复用的GUI，
+ * 玩家的延迟任务以会话UUID为所属者挂在时间轮上，会话释放时一并取消
+ *
+ * 会话由主线程创建和释放；输入缓冲由数据包线程修改，见PasswordBuffer
+ */
+public class AuthSession {
+
+    private final UUID uuid;
+    private final String playerName;
+    private final Player player;
+    private final long createdAt;
+
+    private final PasswordBuffer password;
+    private final TokenBucket inputBucket = new TokenBucket();
+    private final AtomicInteger inputViolations = new AtomicInteger();
+    private final AtomicBoolean renderPending = new AtomicBoolean();
+
+    private final AtomicReference<AnvilGUI> activeGui = new AtomicReference<>();
+    private final AtomicReference<AnvilGUI> viewingGui = new AtomicReference<>();
+    private volatile AnvilGUI retainedGui;
+    private final Set<UUID> viewingPlayers;
+    private volatile boolean opening;
+
+    // 已请求、尚未通过准入队列构建和打开的GUI（主线程读写），0表示没有
+    private int openSequence;
+    private int pendingOpen;
+    private volatile boolean released;
+
+    // 客户端当前打开的容器（由出站数据包记录）
+    private volatile int windowId = -1;
+    private volatile int stateId;
+    // 最近一次发给客户端的输入槽位物品中的掩码字符数（客户端输入框以它为初始内容）
+    private volatile int sentMaskLength;
+    private volatile TrafficMeter viewMeter;
+
+    /**
+     * @param player 玩家
+     * @param passwordCapacity 密码输入缓冲容量
+     * @param viewingPlayers 正在查看GUI的玩家集合（由会话注册表持有，会话查看或关闭GUI时更新）
+     */
+    public AuthSession(Player player, int passwordCapacity, Set<UUID> viewingPlayers) {
+        this.uuid = player.getUniqueId();
+        this.playerName = player.getName();
+        this.player = player;
+        this.createdAt = System.currentTimeMillis();
+        this.password = new PasswordBuffer(passwordCapacity);
+        this.viewingPlayers = viewingPlayers;
+    }
+
+    /**
+     * 处理铁砧中的一次输入（数据包线程调用）
+     * @param cleanInput 去掉空格后的输入文本
+     * @param showPlaintext 是否明文显示密码
+     */
+    public void updateInput(String cleanInput, boolean showPlaintext) {
+        if (cleanInput == null || cleanInput.isEmpty()) {
+            password.clear();
+            return;
+        }
+        password.apply(cleanInput, showPlaintext ? 0 : sentMaskLength, InputDisplayCache.MASK_CHAR);
+    }
+
+    /**
+     * 记录发给客户端的输入槽位物品中的掩码字符数（发送输入槽位时调用）
+     * @param sentMaskLength 掩码字符数，不是掩码物品时为0
+     */
+    public void setSentMaskLength(int sentMaskLength) {
+        this.sentMaskLength = sentMaskLength;
+    }
+
+    /**
+     * 确保密码输入缓冲能保存指定长度的密码
+     * @param capacity 容量
+     */
+    public void ensurePasswordCapacity(int capacity) {
+        password.ensureCapacity(capacity);
+    }
+
+    /**
+     * 清空输入缓冲（用0覆盖）
+     */
+    public void clearInput() {
+        password.clear();
+    }
+
+    /**
+     * 获取显示的掩码长度（明文模式下为密码长度）
+     * @return 掩码长度，没有输入时返回0
+     */
+    public int getDisplayLength() {
+        return password.length();
+    }
+
+    /**
+     * 取出真实密码用于校验，同时清空输入缓冲
+     * @return 真实密码，如果没有则返回null
+     */
+    public String takePassword() {
+        return password.take();
+    }
+
+    /**
+     * 检查是否有输入
+     * @return 是否有输入
+     */
+    public boolean hasInput() {
+        return password.length() > 0;
+    }
+
+    /**
+     * 获取密码长度
+     * @return 密码长度
+     */
+    public int getPasswordLength() {
+        return password.length();
+    }
+
+    /**
+     * 获取重命名数据包的令牌桶
+     * @return 令牌桶
+     */
+    public TokenBucket getInputBucket() {
+        return inputBucket;
+    }
+
+    /**
+     * 记录一次被丢弃的输入（超出速率或超长）
+     * @return 累计次数
+     */
+    public int recordInputViolation() {
+        return inputViolations.incrementAndGet();
+    }
+
+    /**
+     * 请求刷新GUI显示（数据包线程调用）
+     * 同一时间只保留一个待处理的刷新请求，连续的输入合并为一次刷新
+     * @return 是否需要提交新的刷新任务
+     */
+    public boolean requestRender() {
+        return renderPending.compareAndSet(false, true);
+    }
+
+    /**
+     * 开始处理刷新请求（主线程调用），之后的输入会提交新的刷新请求
+     */
+    public void beginRender() {
+        renderPending.set(false);
+    }
+
+    /**
+     * 获取玩家当前正在查看的GUI（数据包线程通过它判断玩家是否打开了我们的GUI）
+     * @return GUI，没有查看时返回null
+     */
+    public AnvilGUI getViewingGui() {
+        return viewingGui.get();
+    }
+
+    /**
+     * 设置玩家当前正在查看的GUI（主线程在背包打开时调用）
+     * @param gui GUI
+     */
+    public void setViewingGui(AnvilGUI gui) {
+        viewMeter = new TrafficMeter();
+        // 容器ID由随后的打开界面数据包重新记录
+        windowId = -1;
+        viewingGui.set(gui);
+        viewingPlayers.add(uuid);
+    }
+
+    /**
+     * 玩家关闭了指定的GUI（主线程在背包关闭时调用）
+     * @param gui 被关闭的GUI
+     */
+    public void clearViewingGui(AnvilGUI gui) {
+        if (viewingGui.compareAndSet(gui, null)) {
+            viewingPlayers.remove(uuid);
+        }
+    }
+
+    /**
+     * 获取本次查看GUI期间的出站流量计数
+     * @return 流量计数，从未查看过GUI时返回null
+     */
+    public TrafficMeter getViewMeter() {
+        return viewMeter;
+    }
+
+    /**
+     * 记录客户端打开的容器ID
+     * @param windowId 容器ID
+     */
+    public void setWindowId(int windowId) {
+        this.windowId = windowId;
+        this.stateId = 0;
+    }
+
+    /**
+     * 获取客户端当前打开的容器ID
+     * @return 容器ID，未知时返回-1
+     */
+    public int getWindowId() {
+        return windowId;
+    }
+
+    /**
+     * 记录容器的最新状态ID（1.17.1+用于校验点击）
+     * @param stateId 状态ID
+     */
+    public void setStateId(int stateId) {
+        this.stateId = stateId;
+    }
+
+    /**
+     * 获取容器的最新状态ID
+     * @return 状态ID
+     */
+    public int getStateId() {
+        return stateId;
+    }
+
+    /**
+     * 获取当前活跃的GUI
+     * @return GUI，如果没有则返回null
+     */
+    public AnvilGUI getActiveGui() {
+        return activeGui.get();
+    }
+
+    /**
+     * 设置当前活跃的GUI
+     * @param gui GUI
+     */
+    public void setActiveGui(AnvilGUI gui) {
+        activeGui.set(gui);
+    }
+
+    /**
+     * 取出并清除当前活跃的GUI
+     * @return 原来的GUI，如果没有则返回null
+     */
+    public AnvilGUI takeActiveGui() {
+        return activeGui.getAndSet(null);
+    }
+
+    /**
+     * 获取留待复用的GUI（会话最近一次创建的GUI，关闭后不丢弃，重开时重置内容后再次显示）
+     * @return GUI，如果没有则返回null
+     */
+    public AnvilGUI getRetainedGui() {
+        return retainedGui;
+    }
+
+    /**
+     * 设置留待复用的GUI
+     * @param gui GUI，传入null时丢弃
+     */
+    public void setRetainedGui(AnvilGUI gui) {
+        this.retainedGui = gui;
+    }
+
+    /**
+     * 登记一次打开GUI的请求，之前尚未执行的请求随之失效
+     * @return 请求编号
+     */
+    public int requestOpen() {
+        openSequence = openSequence == Integer.MAX_VALUE ? 1 : openSequence + 1;
+        pendingOpen = openSequence;
+        return pendingOpen;
+    }
+
+    /**
+     * 准入时认领打开请求
+     * @param request 请求编号
+     * @return 请求仍然有效时返回true（同时清除等待标记），已被新的请求替换或已取消时返回false
+     */
+    public boolean claimOpen(int request) {
+        if (pendingOpen != request) {
+            return false;
+        }
+        pendingOpen = 0;
+        return true;
+    }
+
+    /**
+     * 取消尚未执行的打开请求
+     */
+    public void cancelOpen() {
+        pendingOpen = 0;
+    }
+
+    /**
+     * 是否有尚未执行的打开请求
+     * @return 是否有
+     */
+    public boolean isOpenPending() {
+        return pendingOpen != 0;
+    }
+
+    /**
+     * 是否正在打开GUI（打开过程中的关闭事件不触发重开）
+     * @return 是否正在打开
+     */
+    public boolean isOpening() {
+        return opening;
+    }
+
+    /**
+     * 设置是否正在打开GUI
+     * @param opening 是否正在打开
+     */
+    public void setOpening(boolean opening) {
+        this.opening = opening;
+    }
+
+    /**
+     * 释放会话持有的全部状态
+     */
+    void release() {
+        released = true;
+        opening = false;
+        pendingOpen = 0;
+        activeGui.set(null);
+        retainedGui = null;
+        if (viewingGui.getAndSet(null) != null) {
+            viewingPlayers.remove(uuid);
+        }
+        clearInput();
+    }
+
+    /**
+     * 会话是否已释放
+     * @return 是否已释放
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 会话是否已经比玩家活得更久（玩家已离线或已用新的实体重新进服）
+     * @param current 服务器上当前同UUID的玩家，可以为null
+     * @return 是否泄漏
+     */
+    boolean isOrphaned(Player current) {
+        return current != player || !player.isOnline();
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * 获取会话创建时间
+     * @return 创建时间（毫秒）
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
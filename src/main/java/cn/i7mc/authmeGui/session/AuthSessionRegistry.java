@@ -0,0 +1,213 @@
+package cn.i7mc.authmeGui.session;
+
+import cn.i7mc.authmeGui.util.TimingWheel;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 认证会话注册表
+ * 以UUID为键保存所有在线玩家的认证会话，主线程和数据包线程都可以安全读取
+ *
+ * 会话在进服时创建、退出时整体释放（同时取消玩家在时间轮上的全部延迟任务），
+ * 并定期检查是否有会话比玩家活得更久
+ */
+public class AuthSessionRegistry {
+
+    private final Plugin plugin;
+    private final TimingWheel timingWheel;
+    private final Map<UUID, AuthSession> sessions = new ConcurrentHashMap<>();
+
+    // 正在查看认证GUI的玩家，数据包监听器先查这里，其余玩家的数据包只需一次哈希查找
+    private final Set<UUID> viewingPlayers = ConcurrentHashMap.newKeySet();
+
+    private volatile int passwordCapacity = 21;
+    private long leakCheckIntervalTicks;
+    private long leakedCount;
+
+    public AuthSessionRegistry(Plugin plugin, TimingWheel timingWheel) {
+        this.plugin = plugin;
+        this.timingWheel = timingWheel;
+    }
+
+    /**
+     * 设置密码输入缓冲容量
+     * 重载时调大了容量的话，已有会话的缓冲同时扩容，保证新的长度上限内的输入不会被截断
+     * @param passwordCapacity 容量
+     */
+    public void setPasswordCapacity(int passwordCapacity) {
+        this.passwordCapacity = passwordCapacity;
+        for (AuthSession session : sessions.values()) {
+            session.ensurePasswordCapacity(passwordCapacity);
+        }
+    }
+
+    /**
+     * 为进服的玩家创建新会话，替换可能残留的旧会话
+     * @param player 玩家
+     * @return 新会话
+     */
+    public AuthSession open(Player player) {
+        AuthSession session = new AuthSession(player, passwordCapacity, viewingPlayers);
+        AuthSession previous = sessions.put(player.getUniqueId(), session);
+        if (previous != null) {
+            previous.release();
+        }
+        return session;
+    }
+
+    /**
+     * 获取玩家的会话，没有时创建（例如插件重载时已在线的玩家）
+     * @param player 玩家
+     * @return 会话
+     */
+    public AuthSession getOrCreate(Player player) {
+        AuthSession session = sessions.get(player.getUniqueId());
+        return session != null ? session : sessions.computeIfAbsent(player.getUniqueId(), uuid -> new AuthSession(player, passwordCapacity, viewingPlayers));
+    }
+
+    /**
+     * 获取玩家的会话
+     * @param player 玩家
+     * @return 会话，没有时返回null
+     */
+    public AuthSession get(Player player) {
+        return sessions.get(player.getUniqueId());
+    }
+
+    /**
+     * 获取玩家的会话
+     * @param uuid 玩家UUID
+     * @return 会话，没有时返回null
+     */
+    public AuthSession get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    /**
+     * 玩家退出服务器，释放整个会话并取消其全部延迟任务（主线程调用）
+     * @param player 玩家
+     */
+    public void remove(Player player) {
+        release(player.getUniqueId());
+    }
+
+    private void release(UUID uuid) {
+        AuthSession session = sessions.remove(uuid);
+        if (session != null) {
+            session.release();
+        }
+        timingWheel.cancelAll(uuid);
+    }
+
+    /**
+     * 获取所有会话
+     * @return 会话集合（只读视图）
+     */
+    public Collection<AuthSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * 获取会话数量
+     * @return 会话数量
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 检查玩家是否正在查看认证GUI（任意线程）
+     * @param uuid 玩家UUID
+     * @return 是否正在查看
+     */
+    public boolean isViewing(UUID uuid) {
+        return viewingPlayers.contains(uuid);
+    }
+
+    /**
+     * 获取正在查看认证GUI的玩家数量
+     * @return 玩家数量
+     */
+    public int getViewingCount() {
+        return viewingPlayers.size();
+    }
+
+    /**
+     * 查找比玩家活得更久的会话（主线程调用）
+     * @return 泄漏的会话
+     */
+    public List<AuthSession> findLeakedSessions() {
+        List<AuthSession> leaked = new ArrayList<>();
+        for (AuthSession session : sessions.values()) {
+            if (session.isOrphaned(plugin.getServer().getPlayer(session.getUuid()))) {
+                leaked.add(session);
+            }
+        }
+        return leaked;
+    }
+
+    /**
+     * 启动定期泄漏检查
+     * @param intervalTicks 检查间隔（tick），0表示不检查
+     */
+    public void startLeakCheck(long intervalTicks) {
+        this.leakCheckIntervalTicks = intervalTicks;
+        if (intervalTicks > 0) {
+            timingWheel.schedule(null, intervalTicks, this::runLeakCheck);
+        }
+    }
+
+    /**
+     * 执行一次泄漏检查：报告并释放泄漏的会话
+     * @return 本次发现的泄漏数量
+     */
+    public int checkLeaks() {
+        List<AuthSession> leaked = findLeakedSessions();
+        for (AuthSession session : leaked) {
+            plugin.getLogger().warning("认证会话泄漏: " + session.getPlayerName() + " (" + session.getUuid()
+                + ") 已离线但会话仍然存在，存活 " + (System.currentTimeMillis() - session.getCreatedAt()) / 1000 + " 秒，已释放");
+            // 只释放仍是同一个会话的条目，玩家可能刚刚重新进服
+            if (sessions.remove(session.getUuid(), session)) {
+                session.release();
+            }
+        }
+        leakedCount += leaked.size();
+        return leaked.size();
+    }
+
+    private void runLeakCheck() {
+        try {
+            checkLeaks();
+        } finally {
+            if (leakCheckIntervalTicks > 0) {
+                timingWheel.schedule(null, leakCheckIntervalTicks, this::runLeakCheck);
+            }
+        }
+    }
+
+    /**
+     * 获取累计发现的泄漏会话数量
+     * @return 泄漏数量
+     */
+    public long getLeakedCount() {
+        return leakedCount;
+    }
+
+    /**
+     * 释放所有会话
+     */
+    public void clear() {
+        for (UUID uuid : new ArrayList<>(sessions.keySet())) {
+            release(uuid);
+        }
+        leakCheckIntervalTicks = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package cn.i7mc.authmeGui.session;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 玩家认证状态
+ *
+ * JOINED → AWAITING_GUI → GUI_OPEN → VERIFYING → AUTHENTICATED / KICKED
+ * - 关闭GUI后等待重新打开：GUI_OPEN → AWAITING_GUI
+ * - 密码错误回到界面：VERIFYING → GUI_OPEN（校验期间关闭了界面则 VERIFYING → AWAITING_GUI）
+ *   VERIFYING → AWAITING_GUI 只由GUI在校验结束后自己发起，GUI管理器、命令和登出事件不会打断校验
+ * - 登出后重新认证：AUTHENTICATED → AWAITING_GUI
+ */
+public enum AuthState {
+
+    /**
+     * 刚进入服务器，尚未决定打开哪个GUI
+     */
+    JOINED,
+
+    /**
+     * 已决定打开GUI，等待GUI真正显示
+     */
+    AWAITING_GUI,
+
+    /**
+     * GUI已显示，等待玩家输入
+     */
+    GUI_OPEN,
+
+    /**
+     * 密码校验或注册写库进行中
+     */
+    VERIFYING,
+
+    /**
+     * 已登录或已注册
+     */
+    AUTHENTICATED,
+
+    /**
+     * 已被踢出，等待退出事件
+     */
+    KICKED;
+
+    private Set<AuthState> next;
+
+    static {
+        JOINED.next = EnumSet.of(AWAITING_GUI, AUTHENTICATED, KICKED);
+        AWAITING_GUI.next = EnumSet.of(AWAITING_GUI, GUI_OPEN, AUTHENTICATED, KICKED);
+        GUI_OPEN.next = EnumSet.of(AWAITING_GUI, GUI_OPEN, VERIFYING, AUTHENTICATED, KICKED);
+        VERIFYING.next = EnumSet.of(GUI_OPEN, AWAITING_GUI, AUTHENTICATED, KICKED);
+        AUTHENTICATED.next = EnumSet.of(AWAITING_GUI, AUTHENTICATED, KICKED);
+        KICKED.next = EnumSet.noneOf(AuthState.class);
+    }
+
+    /**
+     * 检查是否允许转换到目标状态
+     * @param target 目标状态
+     * @return 是否允许
+     */
+    public boolean canTransitionTo(AuthState target) {
+        return next.contains(target);
+    }
+
+    /**
+     * 是否还需要认证（需要GUI）
+     * @return 是否需要认证
+     */
+    public boolean needsAuthentication() {
+        return this != AUTHENTICATED && this != KICKED;
+    }
+}
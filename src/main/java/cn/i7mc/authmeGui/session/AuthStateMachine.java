@@ -0,0 +1,132 @@
+package cn.i7mc.authmeGui.session;
+
+import org.bukkit.entity.Player;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家认证状态机
+ * 由进服、登录插件事件、背包事件和退出事件驱动，不使用任何定时轮询
+ *
+ * 状态只在主线程修改，使用ConcurrentHashMap是为了数据包线程可以安全读取
+ */
+public class AuthStateMachine {
+
+    private final Map<UUID, AuthState> states = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> joinedAt = new ConcurrentHashMap<>();
+
+    /**
+     * 玩家进入服务器
+     * @param player 玩家
+     */
+    public void onJoin(Player player) {
+        states.put(player.getUniqueId(), AuthState.JOINED);
+        joinedAt.put(player.getUniqueId(), System.nanoTime());
+    }
+
+    /**
+     * 获取玩家开始等待认证的时间（进服时间）
+     * @param player 玩家
+     * @return System.nanoTime时间戳，没有记录时返回当前时间
+     */
+    public long getWaitingSince(Player player) {
+        Long time = joinedAt.get(player.getUniqueId());
+        return time != null ? time : System.nanoTime();
+    }
+
+    /**
+     * 转换玩家状态
+     * 没有记录的玩家（例如插件重载时已在线）视为刚进入服务器
+     * @param player 玩家
+     * @param target 目标状态
+     * @return 是否转换成功
+     */
+    public boolean transition(Player player, AuthState target) {
+        UUID uuid = player.getUniqueId();
+        AuthState current = states.getOrDefault(uuid, AuthState.JOINED);
+        if (!current.canTransitionTo(target)) {
+            return false;
+        }
+
+        states.put(uuid, target);
+        return true;
+    }
+
+    /**
+     * 获取玩家当前状态
+     * @param player 玩家
+     * @return 当前状态，没有记录时返回null
+     */
+    public AuthState getState(Player player) {
+        return states.get(player.getUniqueId());
+    }
+
+    /**
+     * 检查玩家是否处于指定状态
+     * @param player 玩家
+     * @param state 状态
+     * @return 是否处于该状态
+     */
+    public boolean isInState(Player player, AuthState state) {
+        return states.get(player.getUniqueId()) == state;
+    }
+
+    /**
+     * 检查玩家是否已认证
+     * @param player 玩家
+     * @return 是否已认证
+     */
+    public boolean isAuthenticated(Player player) {
+        return isInState(player, AuthState.AUTHENTICATED);
+    }
+
+    /**
+     * 检查玩家是否还需要认证
+     * @param player 玩家
+     * @return 是否需要认证
+     */
+    public boolean needsAuthentication(Player player) {
+        AuthState state = states.get(player.getUniqueId());
+        return state == null || state.needsAuthentication();
+    }
+
+    /**
+     * 玩家退出服务器，移除状态
+     * @param player 玩家
+     */
+    public void remove(Player player) {
+        states.remove(player.getUniqueId());
+        joinedAt.remove(player.getUniqueId());
+    }
+
+    /**
+     * 清空所有状态
+     */
+    public void clear() {
+        states.clear();
+        joinedAt.clear();
+    }
+
+    /**
+     * 获取被跟踪的玩家数量
+     * @return 玩家数量
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * 按状态统计玩家数量
+     * @return 各状态的玩家数量
+     */
+    public Map<AuthState, Integer> countByState() {
+        Map<AuthState, Integer> counts = new EnumMap<>(AuthState.class);
+        for (AuthState state : states.values()) {
+            counts.merge(state, 1, Integer::sum);
+        }
+        return counts;
+    }
+}
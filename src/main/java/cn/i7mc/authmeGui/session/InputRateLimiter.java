@@ -0,0 +1,121 @@
+package cn.i7mc.authmeGui.session;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 重命名数据包限流器
+ * 在数据包线程中、解析数据包内容之前检查每个玩家的令牌桶和数据包长度，
+ * 超出速率或超长的输入直接丢弃并计数；同一会话丢弃次数达到上限后交给踢出处理（只触发一次）
+ */
+public class InputRateLimiter {
+
+    // 字符串长度前缀（VarInt）最多3字节，UTF-8每个字符最多4字节
+    private static final int LENGTH_PREFIX_BYTES = 3;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final Consumer<AuthSession> kickHandler;
+
+    private volatile long intervalNanos;
+    private volatile int burst;
+    private volatile int maxLength;
+    private volatile int kickThreshold;
+
+    private final LongAdder rateLimitedCount = new LongAdder();
+    private final LongAdder oversizedCount = new LongAdder();
+    private final LongAdder kickCount = new LongAdder();
+
+    /**
+     * @param kickHandler 踢出违规玩家（在数据包线程调用，需要自行回到主线程）
+     */
+    public InputRateLimiter(Consumer<AuthSession> kickHandler) {
+        this.kickHandler = kickHandler;
+    }
+
+    /**
+     * 设置限流参数
+     * @param packetsPerSecond 每秒允许的重命名数据包数量 (0 = 不限制)
+     * @param burst 允许的突发数量
+     * @param maxLength 最大输入长度
+     * @param kickThreshold 丢弃多少个数据包后踢出玩家 (0 = 不踢出)
+     */
+    public void configure(int packetsPerSecond, int burst, int maxLength, int kickThreshold) {
+        this.intervalNanos = packetsPerSecond > 0 ? 1_000_000_000L / packetsPerSecond : 0L;
+        this.burst = Math.max(1, burst);
+        this.maxLength = maxLength;
+        this.kickThreshold = kickThreshold;
+    }
+
+    /**
+     * 检查是否接受一个重命名数据包（只看数据包长度，不解析内容）
+     * @param session 玩家会话
+     * @param payloadBytes 数据包内容字节数
+     * @return 是否接受
+     */
+    public boolean tryAdmit(AuthSession session, int payloadBytes) {
+        if (payloadBytes > maxLength * MAX_BYTES_PER_CHAR + LENGTH_PREFIX_BYTES) {
+            oversizedCount.increment();
+            recordViolation(session);
+            return false;
+        }
+
+        long interval = intervalNanos;
+        if (interval > 0 && !session.getInputBucket().tryAcquire(System.nanoTime(), interval, burst)) {
+            rateLimitedCount.increment();
+            recordViolation(session);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 检查解析出的输入是否超长，超长时计数
+     * @param session 玩家会话
+     * @param length 输入长度
+     * @return 是否接受
+     */
+    public boolean checkLength(AuthSession session, int length) {
+        if (length > maxLength) {
+            oversizedCount.increment();
+            recordViolation(session);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次违规，达到上限时踢出玩家
+     * @param session 玩家会话
+     */
+    private void recordViolation(AuthSession session) {
+        int threshold = kickThreshold;
+        if (threshold > 0 && session.recordInputViolation() == threshold) {
+            kickCount.increment();
+            kickHandler.accept(session);
+        }
+    }
+
+    /**
+     * 获取超出速率被丢弃的数据包数量
+     * @return 数量
+     */
+    public long getRateLimitedCount() {
+        return rateLimitedCount.sum();
+    }
+
+    /**
+     * 获取超长被丢弃的数据包数量
+     * @return 数量
+     */
+    public long getOversizedCount() {
+        return oversizedCount.sum();
+    }
+
+    /**
+     * 获取因刷数据包被踢出的玩家数量
+     * @return 数量
+     */
+    public long getKickCount() {
+        return kickCount.sum();
+    }
+}
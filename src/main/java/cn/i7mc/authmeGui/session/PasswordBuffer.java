@@ -0,0 +1,134 @@
+package cn.i7mc.authmeGui.session;
+
+import java.util.Arrays;
+
+/**
+ * 密码输入缓冲
+ * 固定容量的字符数组，每次收到铁砧重命名文本时只把与当前显示内容不同的部分写入缓冲，
+ * 不再为每次输入拼接新的字符串；提交、取消、关闭和退出时用0覆盖，
+ * 只在校验时复制出一份临时字符串交给登录插件
+ *
+ * 数据包线程写入，主线程读取和清空，所有操作在缓冲对象上同步，临界区只有几次数组拷贝
+ * 输入永远不会被截断：容量不足时（例如重载后调大了最大密码长度）先扩容，旧数组用0覆盖
+ */
+public class PasswordBuffer {
+
+    private char[] chars;
+    private volatile int length;
+
+    /**
+     * @param capacity 初始容量（最大密码长度）
+     */
+    public PasswordBuffer(int capacity) {
+        this.chars = new char[Math.max(1, capacity)];
+    }
+
+    /**
+     * 按客户端发来的重命名文本更新缓冲
+     * 客户端输入框的前maskLength个字符是服务器最近发给客户端的掩码（可能尚未到达），其余是玩家之后输入、尚未换成掩码的明文
+     * （明文模式下maskLength为0），与当前显示内容比较找出相同的前缀和后缀，只替换中间变化的部分
+     * @param text 去掉空格后的输入文本
+     * @param maskLength 客户端输入框中显示为掩码的字符数
+     * @param maskChar 掩码字符
+     */
+    public synchronized void apply(String text, int maskLength, char maskChar) {
+        int oldLength = length;
+        int textLength = text.length();
+
+        // 相同的前缀
+        int prefix = 0;
+        while (prefix < oldLength && prefix < textLength
+                && displays(prefix, text.charAt(prefix), maskLength, maskChar)) {
+            prefix++;
+        }
+
+        // 相同的后缀（不与前缀重叠）
+        int suffix = 0;
+        while (suffix < oldLength - prefix && suffix < textLength - prefix
+                && displays(oldLength - 1 - suffix, text.charAt(textLength - 1 - suffix), maskLength, maskChar)) {
+            suffix++;
+        }
+
+        int removed = oldLength - prefix - suffix;
+        int inserted = textLength - prefix - suffix;
+        if (removed == 0 && inserted == 0) {
+            return;
+        }
+        ensureCapacity(oldLength - removed + inserted);
+
+        // 移动后缀，再写入新增的字符
+        System.arraycopy(chars, oldLength - suffix, chars, prefix + inserted, suffix);
+        text.getChars(prefix, prefix + inserted, chars, prefix);
+
+        int newLength = prefix + inserted + suffix;
+        if (newLength < oldLength) {
+            // 缓冲变短时覆盖掉尾部残留的字符
+            Arrays.fill(chars, newLength, oldLength, '\0');
+        }
+        length = newLength;
+    }
+
+    /**
+     * 确保缓冲至少能保存指定数量的字符，扩容后用0覆盖旧数组
+     * @param capacity 需要的容量
+     */
+    public synchronized void ensureCapacity(int capacity) {
+        if (capacity <= chars.length) {
+            return;
+        }
+        char[] old = chars;
+        chars = Arrays.copyOf(old, capacity);
+        Arrays.fill(old, '\0');
+    }
+
+    /**
+     * 检查客户端输入框中某个位置可能显示的字符
+     * 已发送掩码的部分在掩码到达客户端之前仍显示玩家输入的明文，两者都算作未变化；
+     * 其余位置只能是明文，玩家输入的掩码字符按普通字符处理
+     * @param index 位置
+     * @param c 客户端发来的字符
+     * @param maskLength 已发送给客户端的掩码字符数
+     * @param maskChar 掩码字符
+     * @return 是否与当前内容一致
+     */
+    private boolean displays(int index, char c, int maskLength, char maskChar) {
+        return c == chars[index] || (index < maskLength && c == maskChar);
+    }
+
+    /**
+     * 复制出密码并清空缓冲，返回的字符串只用于本次校验
+     * @return 密码，没有输入时返回null
+     */
+    public synchronized String take() {
+        if (length == 0) {
+            return null;
+        }
+        String password = new String(chars, 0, length);
+        clear();
+        return password;
+    }
+
+    /**
+     * 用0覆盖缓冲
+     */
+    public synchronized void clear() {
+        Arrays.fill(chars, '\0');
+        length = 0;
+    }
+
+    /**
+     * 获取当前密码长度
+     * @return 密码长度
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 获取缓冲容量
+     * @return 容量
+     */
+    public synchronized int capacity() {
+        return chars.length;
+    }
+}
@@ -0,0 +1,102 @@
+package cn.i7mc.authmeGui.session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 界面刷新合并器
+ * 数据包线程每收到一次输入就提交一次刷新请求，同一玩家在同一tick内的请求合并为一次，
+ * 由时间轮每tick在主线程统一执行，每个玩家每tick最多刷新一次，并且总是按最新的输入刷新
+ */
+public class RenderCoalescer {
+
+    private final Queue<AuthSession> dirtySessions = new ConcurrentLinkedQueue<>();
+    private final Consumer<AuthSession> renderer;
+
+    private final LongAdder requestCount = new LongAdder();
+    private long renderCount;
+    private int maxBatchSize;
+
+    /**
+     * @param renderer 在主线程刷新一个会话的界面
+     */
+    public RenderCoalescer(Consumer<AuthSession> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * 提交刷新请求（任意线程）
+     * @param session 玩家会话
+     */
+    public void request(AuthSession session) {
+        requestCount.increment();
+        if (session.requestRender()) {
+            dirtySessions.add(session);
+        }
+    }
+
+    /**
+     * 每tick调用一次，刷新本tick之前提交了请求的会话
+     * 只处理开始时已在队列中的会话，刷新期间新提交的请求留到下一tick
+     */
+    public void drain() {
+        int batchSize = dirtySessions.size();
+        if (batchSize == 0) {
+            return;
+        }
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+
+        for (int i = 0; i < batchSize; i++) {
+            AuthSession session = dirtySessions.poll();
+            if (session == null) {
+                break;
+            }
+
+            // 先清除标记，刷新读取的是此刻最新的输入，之后的输入会重新入队
+            session.beginRender();
+            if (session.isReleased()) {
+                continue;
+            }
+
+            renderCount++;
+            try {
+                renderer.accept(session);
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    /**
+     * 获取等待刷新的会话数量
+     * @return 会话数量
+     */
+    public int getPendingCount() {
+        return dirtySessions.size();
+    }
+
+    /**
+     * 获取收到的刷新请求总数
+     * @return 请求数量
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * 获取实际执行的刷新次数
+     * @return 刷新次数
+     */
+    public long getRenderCount() {
+        return renderCount;
+    }
+
+    /**
+     * 获取单tick最多刷新的会话数量
+     * @return 会话数量
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
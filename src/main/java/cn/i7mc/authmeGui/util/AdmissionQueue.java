@@ -0,0 +1,210 @@
+package cn.i7mc.authmeGui.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * GUI打开准入队列
+ * 服务器重启后大量玩家同时进服时，限制每tick打开的GUI数量，避免所有玩家的GUI挤在同几个tick里构建和打开
+ *
+ * - 等待最久的玩家（最早进服的）优先
+ * - 每个玩家只保留最新的一次请求，旧请求在出队时丢弃；失效的请求过多时重建堆，队列长度与排队玩家数成正比
+ * - 只在主线程使用，由时间轮的tick驱动
+ */
+public class AdmissionQueue {
+
+    /**
+     * 堆中允许保留的失效请求数量下限，超过排队玩家数量的两倍且超过此值时重建堆
+     */
+    private static final int COMPACT_SLACK = 64;
+
+    /**
+     * 队列条目
+     */
+    private static final class Entry {
+        private final UUID owner;
+        private final long waitingSince;
+        private final long enqueuedAt;
+        private final long sequence;
+        private final BooleanSupplier task;
+
+        private Entry(UUID owner, long waitingSince, long enqueuedAt, long sequence, BooleanSupplier task) {
+            this.owner = owner;
+            this.waitingSince = waitingSince;
+            this.enqueuedAt = enqueuedAt;
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> {
+        int result = Long.compare(a.waitingSince, b.waitingSince);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    });
+    private final Map<UUID, Entry> latest = new HashMap<>();
+
+    private int opensPerTick;
+    private long sequence;
+
+    private long admittedCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private int maxDepth;
+
+    /**
+     * @param opensPerTick 每tick最多打开的GUI数量（0或负数表示不限制）
+     */
+    public AdmissionQueue(int opensPerTick) {
+        this.opensPerTick = opensPerTick;
+    }
+
+    /**
+     * 设置每tick最多打开的GUI数量
+     * @param opensPerTick 每tick最多打开的GUI数量（0或负数表示不限制）
+     */
+    public void setOpensPerTick(int opensPerTick) {
+        this.opensPerTick = opensPerTick;
+    }
+
+    /**
+     * 获取每tick最多打开的GUI数量
+     * @return 每tick最多打开的GUI数量
+     */
+    public int getOpensPerTick() {
+        return opensPerTick;
+    }
+
+    /**
+     * 加入队列
+     * @param owner 玩家UUID
+     * @param waitingSince 玩家开始等待的时间（System.nanoTime），越早越优先
+     * @param task 打开GUI的任务，返回是否真的打开了（请求已失效时返回false，不占用本tick的名额）
+     */
+    public void enqueue(UUID owner, long waitingSince, BooleanSupplier task) {
+        Entry entry = new Entry(owner, waitingSince, System.nanoTime(), sequence++, task);
+        latest.put(owner, entry);
+        queue.add(entry);
+        maxDepth = Math.max(maxDepth, latest.size());
+        compactIfNeeded();
+    }
+
+    /**
+     * 移除玩家的请求（出队时丢弃）
+     * @param owner 玩家UUID
+     */
+    public void remove(UUID owner) {
+        latest.remove(owner);
+        if (latest.isEmpty()) {
+            queue.clear();
+        } else {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 被替换或移除的请求只在出队时丢弃；玩家不断进出时它们会在堆中堆积，
+     * 失效请求超过有效请求的两倍时用有效请求重建堆（均摊到每次入队/移除仍是O(log n)）
+     */
+    private void compactIfNeeded() {
+        if (queue.size() <= latest.size() * 2 + COMPACT_SLACK) {
+            return;
+        }
+        queue.clear();
+        queue.addAll(latest.values());
+    }
+
+    /**
+     * 每tick调用一次，按优先级打开GUI直到用完本tick的名额
+     */
+    public void drain() {
+        int budget = opensPerTick > 0 ? opensPerTick : Integer.MAX_VALUE;
+        long now = System.nanoTime();
+
+        Entry entry;
+        while (budget > 0 && (entry = queue.poll()) != null) {
+            if (latest.get(entry.owner) != entry) {
+                // 已被更新的请求替换或已移除
+                continue;
+            }
+            latest.remove(entry.owner);
+
+            boolean opened;
+            try {
+                opened = entry.task.getAsBoolean();
+            } catch (Exception e) {
+                opened = false;
+            }
+
+            if (opened) {
+                budget--;
+                long wait = now - entry.enqueuedAt;
+                admittedCount++;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+            }
+        }
+    }
+
+    /**
+     * 清空队列
+     */
+    public void clear() {
+        queue.clear();
+        latest.clear();
+    }
+
+    /**
+     * 获取当前排队的玩家数量
+     * @return 排队数量
+     */
+    public int getDepth() {
+        return latest.size();
+    }
+
+    /**
+     * 获取历史最大排队数量
+     * @return 最大排队数量
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 获取已准入（打开）的GUI数量
+     * @return 已准入数量
+     */
+    public long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    /**
+     * 获取平均排队时间（毫秒）
+     * @return 平均排队时间
+     */
+    public double getAverageWaitMillis() {
+        return admittedCount == 0 ? 0.0 : totalWaitNanos / (double) admittedCount / 1_000_000.0;
+    }
+
+    /**
+     * 获取最长排队时间（毫秒）
+     * @return 最长排队时间
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    /**
+     * 获取当前队首玩家已经排队的时间（毫秒）
+     * @return 排队时间，队列为空时返回0
+     */
+    public double getOldestWaitMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Entry entry : latest.values()) {
+            oldest = Math.min(oldest, entry.enqueuedAt);
+        }
+        return oldest == Long.MAX_VALUE ? 0.0 : (System.nanoTime() - oldest) / 1_000_000.0;
+    }
+}
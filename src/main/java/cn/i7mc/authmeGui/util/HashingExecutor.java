@@ -0,0 +1,569 @@
+package cn.i7mc.authmeGui.util;
+
+import cn.i7mc.authmeGui.AuthmeGui;
+import org.bukkit.entity.Player;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 密码哈希执行器
+ * 所有登录插件适配器共用的哈希线程池，密码校验和注册写库都在这里执行，结果再切回主线程处理
+ *
+ * 调度规则：
+ * - 任务按IP分组，工作线程在各IP之间轮询取任务，单个IP刷请求不会饿死其他玩家
+ * - 每个IP同时执行的任务数有上限，超出的任务留在该IP的队列中等待轮询
+ * - 每个IP排队的任务数也有上限，超出直接拒绝，单个IP的大量账号不会占满整个等待队列
+ * - 每个玩家同时进行中（排队+执行）的任务数有上限，超出直接拒绝（防止重复提交）
+ * - 等待队列总长度有界，队列满时直接拒绝新任务
+ *
+ * 注册状态查询等数据库查询走单独的查询通道（独立的队列和线程），进服高峰的大量查询不会占满哈希队列
+ */
+public final class HashingExecutor {
+
+    private final AuthmeGui plugin;
+    private final Executor mainThreadExecutor;
+    private final int threadCount;
+    private final int queueCapacity;
+    private final int perPlayerLimit;
+    private final int perIpLimit;
+    private final int perIpQueueLimit;
+    private final int lookupCapacity;
+    private final Thread[] workers;
+    private final Thread[] lookupWorkers;
+
+    // 公平队列：按IP分组，LinkedHashMap的顺序即轮询顺序
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition lookupNotEmpty = lock.newCondition();
+    private final LinkedHashMap<String, ArrayDeque<HashTask<?>>> queuesByIp = new LinkedHashMap<>();
+    private final ArrayDeque<HashTask<?>> lookupQueue = new ArrayDeque<>();
+    private final Map<UUID, Integer> inFlightByPlayer = new HashMap<>();
+    private final Map<String, Integer> activeByIp = new HashMap<>();
+    private int queuedCount;
+    private int activeCount;
+    private boolean running = true;
+
+    // 统计数据
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public HashingExecutor(AuthmeGui plugin, int configuredThreads, int queueCapacity,
+                           int perPlayerLimit, int perIpLimit, int perIpQueueLimit,
+                           int lookupThreads, int lookupCapacity) {
+        this.plugin = plugin;
+
+        // 未配置时使用一半的CPU核心，给服务器主线程留出余量
+        this.threadCount = configuredThreads > 0 ? configuredThreads
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.perPlayerLimit = Math.max(1, perPlayerLimit);
+        this.perIpLimit = Math.max(1, perIpLimit);
+        this.perIpQueueLimit = Math.max(1, perIpQueueLimit);
+        this.lookupCapacity = Math.max(1, lookupCapacity);
+        this.mainThreadExecutor = this::runOnMainThread;
+
+        this.workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::workerLoop, "AuthmeGui-Hashing-" + (i + 1));
+            thread.setDaemon(true);
+            workers[i] = thread;
+            thread.start();
+        }
+
+        this.lookupWorkers = new Thread[Math.max(1, lookupThreads)];
+        for (int i = 0; i < lookupWorkers.length; i++) {
+            Thread thread = new Thread(this::lookupLoop, "AuthmeGui-Lookup-" + (i + 1));
+            thread.setDaemon(true);
+            lookupWorkers[i] = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * 为玩家提交哈希任务
+     * 超出队列容量、玩家上限或IP上限时返回以RejectedExecutionException失败的结果
+     * @param player 玩家
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(Player player, Supplier<T> task) {
+        return enqueue(player.getUniqueId(), resolveIp(player), task);
+    }
+
+    /**
+     * 提交查询任务（注册状态查询等数据库查询）
+     * 在单独的查询通道中执行，不占用哈希队列，只受查询队列容量限制
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        lock.lock();
+        try {
+            if (!running) {
+                return reject(future, "哈希线程池已关闭");
+            }
+            if (lookupQueue.size() >= lookupCapacity) {
+                return reject(future, "查询队列已满");
+            }
+            lookupQueue.addLast(new HashTask<>(null, null, task, future));
+            lookupNotEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        return future;
+    }
+
+    /**
+     * 任务入队
+     * @param owner 所属玩家
+     * @param ip 所属IP
+     * @param task 任务
+     * @return 任务结果
+     */
+    private <T> CompletableFuture<T> enqueue(UUID owner, String ip, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        lock.lock();
+        try {
+            if (!running) {
+                return reject(future, "哈希线程池已关闭");
+            }
+            if (queuedCount >= queueCapacity) {
+                return reject(future, "哈希队列已满");
+            }
+            if (inFlightByPlayer.getOrDefault(owner, 0) >= perPlayerLimit) {
+                return reject(future, "玩家哈希任务超出上限");
+            }
+            ArrayDeque<HashTask<?>> ipQueue = queuesByIp.get(ip);
+            if (ipQueue != null && ipQueue.size() >= perIpQueueLimit) {
+                return reject(future, "IP哈希任务排队超出上限");
+            }
+            inFlightByPlayer.merge(owner, 1, Integer::sum);
+
+            // 超出IP并发上限的任务同样入队，轮到该IP且有空闲名额时才执行
+            if (ipQueue == null) {
+                ipQueue = new ArrayDeque<>();
+                queuesByIp.put(ip, ipQueue);
+            }
+            ipQueue.addLast(new HashTask<>(owner, ip, task, future));
+            queuedCount++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        return future;
+    }
+
+    /**
+     * 拒绝任务
+     * @param future 任务结果
+     * @param reason 拒绝原因
+     * @return 已失败的任务结果
+     */
+    private <T> CompletableFuture<T> reject(CompletableFuture<T> future, String reason) {
+        rejectedCount.increment();
+        future.completeExceptionally(new RejectedExecutionException(reason));
+        return future;
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void workerLoop() {
+        while (true) {
+            HashTask<?> task = null;
+
+            lock.lock();
+            try {
+                // 所有排队任务所属的IP都已达到并发上限时继续等待，直到有任务执行完毕
+                while (running && (queuedCount == 0 || (task = pollFair()) == null)) {
+                    notEmpty.await();
+                }
+                if (!running) {
+                    return;
+                }
+
+                queuedCount--;
+                activeCount++;
+                activeByIp.merge(task.ip, 1, Integer::sum);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            task.run();
+        }
+    }
+
+    /**
+     * 查询通道工作线程主循环
+     */
+    private void lookupLoop() {
+        while (true) {
+            HashTask<?> task;
+
+            lock.lock();
+            try {
+                while (running && lookupQueue.isEmpty()) {
+                    lookupNotEmpty.await();
+                }
+                if (!running) {
+                    return;
+                }
+
+                task = lookupQueue.pollFirst();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            task.run();
+        }
+    }
+
+    /**
+     * 轮询取出下一个未达到并发上限的IP的队首任务（调用时必须持有锁）
+     * @return 任务，所有IP都已达到上限时返回null
+     */
+    private HashTask<?> pollFair() {
+        Iterator<Map.Entry<String, ArrayDeque<HashTask<?>>>> iterator = queuesByIp.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ArrayDeque<HashTask<?>>> entry = iterator.next();
+            if (activeByIp.getOrDefault(entry.getKey(), 0) >= perIpLimit) {
+                continue;
+            }
+
+            ArrayDeque<HashTask<?>> queue = entry.getValue();
+            HashTask<?> task = queue.pollFirst();
+
+            // 移到轮询队尾，让其他IP先执行
+            iterator.remove();
+            if (!queue.isEmpty()) {
+                queuesByIp.put(entry.getKey(), queue);
+            }
+            return task;
+        }
+        return null;
+    }
+
+    /**
+     * 任务执行完毕，释放占用的名额
+     * @param task 任务
+     */
+    private void release(HashTask<?> task) {
+        if (task.owner == null) {
+            // 查询通道的任务不占用哈希名额
+            return;
+        }
+
+        lock.lock();
+        try {
+            activeCount--;
+            inFlightByPlayer.computeIfPresent(task.owner, (key, count) -> count > 1 ? count - 1 : null);
+            activeByIp.computeIfPresent(task.ip, (key, count) -> count > 1 ? count - 1 : null);
+
+            // 该IP释放了名额，唤醒一个可能在等待的工作线程
+            if (queuedCount > 0) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取玩家的IP分组键
+     * @param player 玩家
+     * @return IP字符串
+     */
+    private String resolveIp(Player player) {
+        try {
+            InetSocketAddress address = player.getAddress();
+            if (address != null && address.getAddress() != null) {
+                return address.getAddress().getHostAddress();
+            }
+        } catch (Exception e) {
+        }
+        return "unknown";
+    }
+
+    /**
+     * 检查失败原因是否为任务被拒绝
+     * @param error 失败原因
+     * @return 是否被拒绝
+     */
+    public static boolean isRejected(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    /**
+     * 获取切回主线程的执行器
+     * @return 主线程执行器
+     */
+    public Executor mainThread() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * 在主线程中执行任务
+     * @param task 任务
+     */
+    public void runOnMainThread(Runnable task) {
+        if (plugin.getServer().isPrimaryThread()) {
+            task.run();
+            return;
+        }
+
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        } catch (Exception e) {
+            // 插件已禁用，丢弃回调
+        }
+    }
+
+    /**
+     * 获取工作线程数
+     * @return 工作线程数
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * 获取当前排队中的任务数
+     * @return 队列深度
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queuedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取查询通道中排队的任务数
+     * @return 队列深度
+     */
+    public int getLookupQueueDepth() {
+        lock.lock();
+        try {
+            return lookupQueue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取队列容量
+     * @return 队列容量
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 获取正在执行的任务数
+     * @return 执行中的任务数
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return activeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取已完成的任务数
+     * @return 已完成的任务数
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * 获取被拒绝的任务数
+     * @return 被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * 获取平均排队等待时间
+     * @return 毫秒
+     */
+    public double getAverageQueueWaitMillis() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalQueueWaitNanos.sum() / (double) completed / 1_000_000D;
+    }
+
+    /**
+     * 获取最长排队等待时间
+     * @return 毫秒
+     */
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000D;
+    }
+
+    /**
+     * 获取平均哈希耗时
+     * @return 毫秒
+     */
+    public double getAverageHashMillis() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalHashNanos.sum() / (double) completed / 1_000_000D;
+    }
+
+    /**
+     * 获取最长哈希耗时
+     * @return 毫秒
+     */
+    public double getMaxHashMillis() {
+        return maxHashNanos.get() / 1_000_000D;
+    }
+
+    /**
+     * 关闭线程池
+     * 尚未执行的任务以RejectedExecutionException失败
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            for (ArrayDeque<HashTask<?>> queue : queuesByIp.values()) {
+                for (HashTask<?> task : queue) {
+                    task.future.completeExceptionally(new RejectedExecutionException("哈希线程池已关闭"));
+                }
+            }
+            for (HashTask<?> task : lookupQueue) {
+                task.future.completeExceptionally(new RejectedExecutionException("哈希线程池已关闭"));
+            }
+            queuesByIp.clear();
+            lookupQueue.clear();
+            inFlightByPlayer.clear();
+            activeByIp.clear();
+            queuedCount = 0;
+            notEmpty.signalAll();
+            lookupNotEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Thread[] allWorkers = Arrays.copyOf(workers, workers.length + lookupWorkers.length);
+        System.arraycopy(lookupWorkers, 0, allWorkers, workers.length, lookupWorkers.length);
+        for (Thread worker : allWorkers) {
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+                if (worker.isAlive()) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录最大值
+     * @param holder 最大值
+     * @param value 新的取值
+     */
+    private static void recordMax(AtomicLong holder, long value) {
+        long current;
+        while (value > (current = holder.get())) {
+            if (holder.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 排队中的哈希任务
+     */
+    private final class HashTask<T> {
+        private final UUID owner;
+        private final String ip;
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> future;
+        private final long enqueuedAt;
+
+        private HashTask(UUID owner, String ip, Supplier<T> supplier, CompletableFuture<T> future) {
+            this.owner = owner;
+            this.ip = ip;
+            this.supplier = supplier;
+            this.future = future;
+            this.enqueuedAt = System.nanoTime();
+        }
+
+        private void run() {
+            long startedAt = System.nanoTime();
+            T result = null;
+            Throwable error = null;
+
+            try {
+                result = supplier.get();
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            // 查询通道的任务不计入哈希统计
+            if (owner != null) {
+                long finishedAt = System.nanoTime();
+                long queueWait = startedAt - enqueuedAt;
+                long hashTime = finishedAt - startedAt;
+                completedCount.increment();
+                totalQueueWaitNanos.add(queueWait);
+                totalHashNanos.add(hashTime);
+                recordMax(maxQueueWaitNanos, queueWait);
+                recordMax(maxHashNanos, hashTime);
+            }
+
+            // 先释放名额再完成任务，保证回调中可以立即重新提交
+            release(this);
+
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
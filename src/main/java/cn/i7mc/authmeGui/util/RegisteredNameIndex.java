@@ -0,0 +1,304 @@
+package cn.i7mc.authmeGui.util;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 已注册玩家名称索引
+ * 只保存小写名称的64位指纹，使用线性探测的开放寻址哈希表（long[]），
+ * 每个名称占用8字节，百万级账号只需十几MB内存
+ *
+ * 64位指纹在百万级数据量下碰撞概率可以忽略（约1e-7），
+ * 查询无锁（乐观读），写入和扩容由写锁保护
+ *
+ * 索引只能证明名称"已注册"：不经过注册事件的注册（管理员命令、共用数据库的其他服务器）不会进入索引，
+ * 查询不到时调用方必须再询问登录插件
+ */
+public class RegisteredNameIndex {
+
+    /**
+     * 空槽位标记
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * 最大负载因子（百分比）
+     */
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] table;
+    private int size;
+
+    // 初始加载期间被移除的名称指纹，批量加载的快照不能把它们重新加回来
+    private final Set<Long> removedDuringLoad = new HashSet<>();
+
+    private volatile boolean ready;
+    private volatile long loadTimeMillis;
+
+    /**
+     * @param expectedSize 预计的名称数量
+     */
+    public RegisteredNameIndex(int expectedSize) {
+        this.table = new long[capacityFor(expectedSize)];
+    }
+
+    /**
+     * 计算名称的64位指纹（忽略大小写）
+     * FNV-1a 累加后再做一次 MurmurHash3 的 fmix64 混淆，保证低位分布均匀
+     * @param name 玩家名称
+     * @return 指纹，永远不为0
+     */
+    public static long fingerprint(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    /**
+     * 检查名称是否在索引中
+     * @param name 玩家名称
+     * @return 是否存在
+     */
+    public boolean contains(String name) {
+        long fingerprint = fingerprint(name);
+
+        long stamp = lock.tryOptimisticRead();
+        boolean found = probe(table, fingerprint);
+        if (lock.validate(stamp)) {
+            return found;
+        }
+
+        // 读取期间发生了写入，退回到读锁
+        stamp = lock.readLock();
+        try {
+            return probe(table, fingerprint);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 添加名称
+     * @param name 玩家名称
+     */
+    public void add(String name) {
+        long fingerprint = fingerprint(name);
+        long stamp = lock.writeLock();
+        try {
+            if (!ready) {
+                removedDuringLoad.remove(fingerprint);
+            }
+            insertLocked(fingerprint);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 添加批量加载快照中的名称
+     * 加载期间已经通过remove移除的名称不会被快照重新加回
+     * @param name 玩家名称
+     */
+    public void addLoaded(String name) {
+        long fingerprint = fingerprint(name);
+        long stamp = lock.writeLock();
+        try {
+            if (!removedDuringLoad.contains(fingerprint)) {
+                insertLocked(fingerprint);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void insertLocked(long fingerprint) {
+        if ((size + 1) * 100L > (long) table.length * MAX_LOAD_PERCENT) {
+            resize(table.length << 1);
+        }
+        if (insert(table, fingerprint)) {
+            size++;
+        }
+    }
+
+    /**
+     * 预留容量，批量加载前调用可以避免多次扩容
+     * @param expectedSize 预计的名称数量
+     */
+    public void ensureCapacity(int expectedSize) {
+        long stamp = lock.writeLock();
+        try {
+            int capacity = capacityFor(Math.max(expectedSize, size));
+            if (capacity > table.length) {
+                resize(capacity);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 移除名称
+     * 使用反向移位删除，不留墓碑
+     * @param name 玩家名称
+     */
+    public void remove(String name) {
+        long fingerprint = fingerprint(name);
+        long stamp = lock.writeLock();
+        try {
+            if (!ready) {
+                removedDuringLoad.add(fingerprint);
+            }
+            long[] tab = table;
+            int mask = tab.length - 1;
+            int index = (int) fingerprint & mask;
+            while (tab[index] != EMPTY) {
+                if (tab[index] == fingerprint) {
+                    deleteAt(tab, index);
+                    size--;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 标记索引已完成初始加载
+     * @param loadTimeMillis 加载耗时（毫秒）
+     */
+    public void markReady(long loadTimeMillis) {
+        long stamp = lock.writeLock();
+        try {
+            removedDuringLoad.clear();
+            this.loadTimeMillis = loadTimeMillis;
+            this.ready = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 索引是否已完成初始加载（加载完成前的查询结果不完整）
+     * @return 是否可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 获取名称数量
+     * @return 名称数量
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 获取哈希表占用的内存（字节）
+     * @return 内存占用
+     */
+    public long getMemoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) table.length * Long.BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 获取初始加载耗时（毫秒）
+     * @return 加载耗时
+     */
+    public long getLoadTimeMillis() {
+        return loadTimeMillis;
+    }
+
+    private static boolean probe(long[] tab, long fingerprint) {
+        int mask = tab.length - 1;
+        int index = (int) fingerprint & mask;
+        // 乐观读期间表可能被修改，最多探测一整圈，结果由调用方校验
+        for (int i = 0; i < tab.length; i++) {
+            long value = tab[index];
+            if (value == EMPTY) {
+                return false;
+            }
+            if (value == fingerprint) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean insert(long[] tab, long fingerprint) {
+        int mask = tab.length - 1;
+        int index = (int) fingerprint & mask;
+        while (tab[index] != EMPTY) {
+            if (tab[index] == fingerprint) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        tab[index] = fingerprint;
+        return true;
+    }
+
+    private static void deleteAt(long[] tab, int index) {
+        int mask = tab.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (tab[next] != EMPTY) {
+            int home = (int) tab[next] & mask;
+            // 如果next的理想位置不在(hole, next]区间内，就把它移到空洞处
+            boolean movable = hole <= next
+                ? (home <= hole || home > next)
+                : (home <= hole && home > next);
+            if (movable) {
+                tab[hole] = tab[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        tab[hole] = EMPTY;
+    }
+
+    private void resize(int newCapacity) {
+        long[] newTable = new long[newCapacity];
+        for (long value : table) {
+            if (value != EMPTY) {
+                insert(newTable, value);
+            }
+        }
+        table = newTable;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 100 / MAX_LOAD_PERCENT + 1);
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+}
@@ -0,0 +1,135 @@
+package cn.i7mc.authmeGui.util;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册状态预热缓存
+ * 在AsyncPlayerPreLoginEvent中（异步线程）查询玩家的注册状态写入缓存，
+ * 玩家进入服务器后主线程直接读取，无需再访问登录插件数据库
+ *
+ * 缓存按UUID索引，条目在玩家退出、注销账号或超过有效期后失效
+ * 过期条目在读取时移除；预登录后没有进入服务器的玩家的条目由时间轮每隔一个有效期清理一次，
+ * 写入时不遍历缓存
+ */
+public class RegistrationCache {
+
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+        private final String playerName;
+        private final boolean registered;
+        private final Object accountRecord;
+        private final long loadedAt;
+
+        private Entry(String playerName, boolean registered, Object accountRecord, long loadedAt) {
+            this.playerName = playerName;
+            this.registered = registered;
+            this.accountRecord = accountRecord;
+            this.loadedAt = loadedAt;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public boolean isRegistered() {
+            return registered;
+        }
+
+        /**
+         * 获取登录插件的账号记录（例如CatSeedLogin的LoginPlayer），没有时为null
+         * @return 账号记录
+         */
+        public Object getAccountRecord() {
+            return accountRecord;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private long nextSweepAt;
+
+    /**
+     * @param ttlSeconds 条目有效期（秒）
+     */
+    public RegistrationCache(long ttlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1L, ttlSeconds));
+        this.nextSweepAt = System.nanoTime() + ttlNanos;
+    }
+
+    /**
+     * 写入玩家的注册状态
+     * @param uuid 玩家UUID
+     * @param playerName 玩家名称
+     * @param registered 是否已注册
+     * @param accountRecord 登录插件的账号记录，可以为null
+     */
+    public void put(UUID uuid, String playerName, boolean registered, Object accountRecord) {
+        entries.put(uuid, new Entry(playerName, registered, accountRecord, System.nanoTime()));
+    }
+
+    /**
+     * 清理过期条目（预登录后未进入服务器的玩家），由时间轮每tick调用，每隔一个有效期才真正遍历一次
+     */
+    public void sweepExpired() {
+        long now = System.nanoTime();
+        if (now - nextSweepAt < 0) {
+            return;
+        }
+        nextSweepAt = now + ttlNanos;
+        entries.values().removeIf(entry -> now - entry.loadedAt > ttlNanos);
+    }
+
+    /**
+     * 获取未过期的缓存条目
+     * @param uuid 玩家UUID
+     * @return 缓存条目，不存在或已过期时返回null
+     */
+    public Entry get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.loadedAt > ttlNanos) {
+            entries.remove(uuid, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 移除玩家的缓存条目
+     * @param uuid 玩家UUID
+     */
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * 按名称移除缓存条目（忽略大小写，用于管理员注销离线玩家）
+     * @param playerName 玩家名称
+     */
+    public void invalidate(String playerName) {
+        entries.values().removeIf(entry -> entry.playerName.equalsIgnoreCase(playerName));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取缓存条目数量
+     * @return 条目数量
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,349 @@
+package cn.i7mc.authmeGui.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ * 插件所有按玩家的延迟任务（延迟打开GUI、打开重试、关闭后重开等）都放在这里，
+ * 只由一个每tick执行一次的Bukkit任务驱动，玩家数量再多调度器里也只有一个任务
+ *
+ * - 插入和取消都是O(1)：每个槽位是双向链表，每个玩家的任务也串成一条双向链表
+ * - 玩家退出时可以一次取消他的全部任务
+ * - 任务总是在主线程执行；其他线程调度的任务先进入队列，下一tick再放入时间轮
+ */
+public class TimingWheel {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * 延迟任务句柄
+     */
+    public final class Timeout {
+        private final UUID owner;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long deadline;
+
+        // 槽位链表
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        // 玩家链表
+        private boolean ownerLinked;
+        private Timeout ownerPrev;
+        private Timeout ownerNext;
+
+        private Timeout(UUID owner, Runnable task) {
+            this.owner = owner;
+            this.task = task;
+        }
+
+        /**
+         * 取消任务
+         * @return 是否成功取消（已执行或已取消时返回false）
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+
+            // 主线程中立即摘除；其他线程只做标记，到期时丢弃
+            if (Bukkit.isPrimaryThread()) {
+                unlink(this);
+            }
+            return true;
+        }
+
+        /**
+         * 是否已取消
+         * @return 是否已取消
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * 是否已执行
+         * @return 是否已执行
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * 时间轮槽位
+     */
+    private static final class Bucket {
+        private Timeout head;
+    }
+
+    private final Plugin plugin;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Map<UUID, Timeout> ownerHeads = new HashMap<>();
+    private final Queue<Timeout> pendingInserts = new ConcurrentLinkedQueue<>();
+    private final List<Runnable> tickHooks = new ArrayList<>();
+
+    private BukkitTask driverTask;
+    private long currentTick;
+    private int scheduledCount;
+    private long executedCount;
+
+    /**
+     * @param plugin 插件实例
+     * @param wheelSize 槽位数量（向上取整为2的幂），超过一圈的任务按圈数等待
+     */
+    public TimingWheel(Plugin plugin, int wheelSize) {
+        this.plugin = plugin;
+        int size = Integer.highestOneBit(Math.max(16, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 启动驱动任务
+     */
+    public void start() {
+        if (driverTask == null) {
+            driverTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * 停止驱动任务并丢弃所有未执行的任务
+     */
+    public void stop() {
+        if (driverTask != null) {
+            driverTask.cancel();
+            driverTask = null;
+        }
+
+        for (Bucket bucket : wheel) {
+            bucket.head = null;
+        }
+        ownerHeads.clear();
+        pendingInserts.clear();
+        tickHooks.clear();
+        scheduledCount = 0;
+    }
+
+    /**
+     * 调度一个延迟任务
+     * @param owner 所属玩家UUID，可以为null
+     * @param delayTicks 延迟tick数（至少1）
+     * @param task 任务，在主线程执行
+     * @return 任务句柄
+     */
+    public Timeout schedule(UUID owner, long delayTicks, Runnable task) {
+        Timeout timeout = new Timeout(owner, task);
+        timeout.deadline = Math.max(1L, delayTicks);
+
+        if (Bukkit.isPrimaryThread()) {
+            insert(timeout, currentTick + timeout.deadline);
+        } else {
+            // deadline暂存延迟，放入时间轮时再换算为绝对tick
+            pendingInserts.add(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * 添加每tick执行一次的钩子（在到期任务之后执行），用于需要按tick分配名额的组件
+     * @param hook 钩子
+     */
+    public void addTickHook(Runnable hook) {
+        tickHooks.add(hook);
+    }
+
+    /**
+     * 取消玩家的所有延迟任务（主线程调用）
+     * @param owner 玩家UUID
+     */
+    public void cancelAll(UUID owner) {
+        Timeout timeout = ownerHeads.get(owner);
+        while (timeout != null) {
+            Timeout next = timeout.ownerNext;
+            // 其他线程已经取消、但还留在链表中的任务也一并摘除
+            timeout.state.compareAndSet(PENDING, CANCELLED);
+            unlink(timeout);
+            timeout = next;
+        }
+        ownerHeads.remove(owner);
+
+        // 其他线程刚提交、尚未放入时间轮的任务
+        for (Timeout pending : pendingInserts) {
+            if (owner.equals(pending.owner)) {
+                pending.state.compareAndSet(PENDING, CANCELLED);
+            }
+        }
+    }
+
+    /**
+     * 获取等待执行的任务数量
+     * @return 任务数量
+     */
+    public int getScheduledCount() {
+        return scheduledCount + pendingInserts.size();
+    }
+
+    /**
+     * 获取有待执行任务的玩家数量
+     * @return 玩家数量
+     */
+    public int getOwnerCount() {
+        return ownerHeads.size();
+    }
+
+    /**
+     * 获取已执行的任务总数
+     * @return 已执行数量
+     */
+    public long getExecutedCount() {
+        return executedCount;
+    }
+
+    /**
+     * 获取槽位数量
+     * @return 槽位数量
+     */
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    /**
+     * 每tick执行一次：放入其他线程提交的任务，执行当前槽位中到期的任务
+     */
+    private void tick() {
+        currentTick++;
+
+        Timeout pending;
+        while ((pending = pendingInserts.poll()) != null) {
+            if (pending.state.get() == PENDING) {
+                // 提交时已经过去了不到一tick，从本tick开始计算
+                insert(pending, currentTick + pending.deadline - 1);
+            }
+        }
+
+        // 先把到期的任务从槽位中摘出来，再逐个执行，执行中的任务可以安全地调度或取消其他任务
+        Bucket bucket = wheel[(int) (currentTick & mask)];
+        Timeout expired = null;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.state.get() != PENDING) {
+                unlink(timeout);
+            } else if (timeout.deadline <= currentTick) {
+                // 只从槽位中摘除，执行前仍然挂在玩家链表上，期间可以被cancelAll取消
+                unlinkBucket(timeout);
+                timeout.next = expired;
+                expired = timeout;
+            }
+            timeout = next;
+        }
+
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            unlinkOwner(expired);
+            if (expired.state.compareAndSet(PENDING, EXPIRED)) {
+                executedCount++;
+                try {
+                    expired.task.run();
+                } catch (Exception e) {
+                }
+            }
+            expired = next;
+        }
+
+        for (Runnable hook : tickHooks) {
+            try {
+                hook.run();
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    private void insert(Timeout timeout, long deadline) {
+        timeout.deadline = deadline;
+
+        Bucket bucket = wheel[(int) (deadline & mask)];
+        timeout.bucket = bucket;
+        timeout.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = timeout;
+        }
+        bucket.head = timeout;
+
+        if (timeout.owner != null) {
+            Timeout ownerHead = ownerHeads.get(timeout.owner);
+            timeout.ownerNext = ownerHead;
+            if (ownerHead != null) {
+                ownerHead.ownerPrev = timeout;
+            }
+            ownerHeads.put(timeout.owner, timeout);
+            timeout.ownerLinked = true;
+        }
+        scheduledCount++;
+    }
+
+    private void unlink(Timeout timeout) {
+        unlinkBucket(timeout);
+        unlinkOwner(timeout);
+    }
+
+    private void unlinkBucket(Timeout timeout) {
+        Bucket bucket = timeout.bucket;
+        if (bucket == null) {
+            return;
+        }
+
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            bucket.head = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.bucket = null;
+        timeout.prev = null;
+        timeout.next = null;
+        scheduledCount--;
+    }
+
+    private void unlinkOwner(Timeout timeout) {
+        if (timeout.ownerLinked) {
+            if (timeout.ownerPrev != null) {
+                timeout.ownerPrev.ownerNext = timeout.ownerNext;
+            } else if (timeout.ownerNext != null) {
+                ownerHeads.put(timeout.owner, timeout.ownerNext);
+            } else {
+                ownerHeads.remove(timeout.owner);
+            }
+            if (timeout.ownerNext != null) {
+                timeout.ownerNext.ownerPrev = timeout.ownerPrev;
+            }
+            timeout.ownerPrev = null;
+            timeout.ownerNext = null;
+            timeout.ownerLinked = false;
+        }
+    }
+}
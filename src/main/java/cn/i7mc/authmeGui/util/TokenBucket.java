@@ -0,0 +1,36 @@
+package cn.i7mc.authmeGui.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 只保存一个"令牌桶重新装满的时间点"，每次取令牌把它向后推一个令牌的间隔，
+ * 推过当前时间加上桶容量对应的时长就说明令牌已用完；一次CAS完成，不加锁、不分配对象
+ *
+ * 速率和容量由调用方每次传入，重载配置后立即生效
+ */
+public class TokenBucket {
+
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * 尝试取出一个令牌（任意线程）
+     * @param now 当前时间（System.nanoTime()）
+     * @param intervalNanos 每个令牌的间隔（纳秒）
+     * @param capacity 桶容量（允许的突发数量）
+     * @return 是否取到令牌
+     */
+    public boolean tryAcquire(long now, long intervalNanos, int capacity) {
+        long burstNanos = intervalNanos * capacity;
+        while (true) {
+            long current = fullAt.get();
+            long next = (current == Long.MIN_VALUE || current < now ? now : current) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
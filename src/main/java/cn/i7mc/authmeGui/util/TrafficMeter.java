@@ -0,0 +1,86 @@
+package cn.i7mc.authmeGui.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 出站流量计数器
+ * 统计玩家在认证GUI中输入时服务器发出的数据包数量和字节数，用于比较不同的界面同步方式
+ * 计数在Netty线程累加，在主线程读取
+ */
+public class TrafficMeter {
+
+    private final LongAdder keystrokes = new LongAdder();
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder slotPackets = new LongAdder();
+    private final LongAdder fullResyncs = new LongAdder();
+    private final long startedAt = System.nanoTime();
+
+    /**
+     * 记录一次输入
+     */
+    public void recordKeystroke() {
+        keystrokes.increment();
+    }
+
+    /**
+     * 记录一个出站数据包
+     * @param size 数据包字节数
+     */
+    public void recordOutbound(int size) {
+        packets.increment();
+        bytes.add(size);
+    }
+
+    /**
+     * 记录一个定向槽位数据包
+     */
+    public void recordSlotPacket() {
+        slotPackets.increment();
+    }
+
+    /**
+     * 记录一次完整的背包重新同步
+     */
+    public void recordFullResync() {
+        fullResyncs.increment();
+    }
+
+    public long getKeystrokes() {
+        return keystrokes.sum();
+    }
+
+    public long getPackets() {
+        return packets.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getSlotPackets() {
+        return slotPackets.sum();
+    }
+
+    public long getFullResyncs() {
+        return fullResyncs.sum();
+    }
+
+    /**
+     * 获取平均每次输入产生的出站字节数
+     * @return 字节数，没有输入时返回0
+     */
+    public double getBytesPerKeystroke() {
+        long count = keystrokes.sum();
+        return count == 0 ? 0.0 : bytes.sum() / (double) count;
+    }
+
+    /**
+     * 获取平均每秒出站数据包数量
+     * @return 每秒数据包数量
+     */
+    public double getPacketsPerSecond() {
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        return seconds <= 0 ? 0.0 : packets.sum() / seconds;
+    }
+}